@@ -0,0 +1,40 @@
+package com.example.api;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Levanta la aplicación completa (sin servidor HTTP) una vez por benchmark, para medir los
+ * handlers con la misma configuración que en producción. Los datos quedan en {@code data/}
+ * del directorio de trabajo.
+ */
+@State(Scope.Benchmark)
+public class ApiContext {
+    static final String EMAIL = "bench@example.com";
+
+    ConfigurableApplicationContext context;
+    ApiApplication api;
+    String token;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(ApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.autoconfigure.exclude="
+                        + "org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration")
+                .run();
+        api = context.getBean(ApiApplication.class);
+        token = api.generateToken(EMAIL);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
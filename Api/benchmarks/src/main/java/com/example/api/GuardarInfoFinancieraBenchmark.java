@@ -0,0 +1,30 @@
+package com.example.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.springframework.http.ResponseEntity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code POST /info_financiera} de punta a punta (validación del token, cálculo, escritura
+ * durable), llamando al handler sin pasar por HTTP.
+ */
+public class GuardarInfoFinancieraBenchmark {
+
+    private static final Map<String, Object> DATOS = new HashMap<>();
+
+    static {
+        DATOS.put("ingreso", "$ 4,000,000");
+        DATOS.put("arriendoHipo", "1,200,000");
+        DATOS.put("services", "350,000");
+        DATOS.put("alimentacion", "900,000");
+        DATOS.put("transporte", "250,000");
+        DATOS.put("otros", 100000);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> guardar(ApiContext ctx) {
+        return ctx.api.guardarInfoFinanciera(ctx.token, DATOS);
+    }
+}
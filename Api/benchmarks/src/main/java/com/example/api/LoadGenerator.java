@@ -0,0 +1,304 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga contra una API en ejecución. Cada sesión reproduce un tráfico grabado
+ * (por defecto {@code traffic/swing-client.jsonl}, la secuencia del cliente Swing: registro,
+ * login, info_personal, info_financiera y lecturas repetidas) con un email nuevo, y la
+ * latencia de cada endpoint va a un histograma HdrHistogram.
+ *
+ * <p>Formato del tráfico: una petición JSON por línea con {@code path}, {@code method}
+ * (POST si hay {@code body}, GET si no), {@code body} y {@code repeat}. En el cuerpo se
+ * reemplazan {@code ${email}}, {@code ${password}} y {@code ${session}}; el token de la
+ * última respuesta que traiga uno va en {@code x-access-token}.</p>
+ *
+ * <p>Sin {@code --rate} es de lazo cerrado: {@code --concurrency} hilos encadenan sesiones.
+ * Con {@code --rate} es de lazo abierto: las sesiones arrancan a ritmo fijo sin esperar a
+ * las anteriores, y la primera petición de cada sesión se mide desde su hora programada,
+ * así que la espera en cola cuenta como latencia.</p>
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.api.LoadGenerator \
+ *     --url http://127.0.0.1:8080/ --concurrency 16 --rate 50 --duration 60 --warmup 10
+ * </pre>
+ */
+public final class LoadGenerator {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    private final List<Step> traffic;
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    // Nunca vuelve a 0: el número de sesión forma el email y no se puede repetir
+    private final AtomicLong sessions = new AtomicLong();
+    private volatile long sessionsAtReset;
+    // Un histograma y un contador de errores por endpoint, en el orden del tráfico
+    private final Map<String, ConcurrentHistogram> latencies = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> errors = new HashMap<>();
+    private volatile boolean running = true;
+
+    LoadGenerator(String baseUrl, List<Step> traffic) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.traffic = traffic;
+        for (Step step : traffic) {
+            latencies.computeIfAbsent(step.path, k -> new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+            errors.computeIfAbsent(step.path, k -> new AtomicLong());
+        }
+    }
+
+    /**
+     * Una petición del tráfico grabado.
+     */
+    static final class Step {
+        final String path;
+        final String method;
+        final String body;
+        final int repeat;
+
+        Step(String path, String method, String body, int repeat) {
+            this.path = path;
+            this.method = method;
+            this.body = body;
+            this.repeat = repeat;
+        }
+    }
+
+    static List<Step> readTraffic(InputStream in, ObjectMapper mapper) throws IOException {
+        List<Step> steps = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode node = mapper.readTree(line);
+            String path = node.path("path").asText();
+            if (path.isEmpty()) {
+                throw new IOException("Línea de tráfico sin path: " + line);
+            }
+            JsonNode body = node.get("body");
+            String method = node.path("method").asText(body != null ? "POST" : "GET");
+            steps.add(new Step(path.startsWith("/") ? path.substring(1) : path, method,
+                    body != null ? mapper.writeValueAsString(body) : null, node.path("repeat").asInt(1)));
+        }
+        return steps;
+    }
+
+    /**
+     * Una sesión completa con un usuario nuevo. {@code scheduledNanos} es la hora en que
+     * debía empezar (lazo abierto) o 0 para medir desde el envío.
+     */
+    void runSession(long scheduledNanos) {
+        long session = sessions.incrementAndGet();
+        String email = "carga-" + runId + "-" + session + "@example.com";
+        String password = "clave-" + session;
+        String token = null;
+        long start = scheduledNanos;
+        for (Step step : traffic) {
+            for (int i = 0; i < step.repeat; i++) {
+                if (start == 0) {
+                    start = System.nanoTime();
+                }
+                HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + step.path))
+                        .timeout(Duration.ofSeconds(30))
+                        .header("Accept", "application/json");
+                if (token != null) {
+                    request.header("x-access-token", token);
+                }
+                if (step.body != null) {
+                    String body = step.body.replace("${email}", email)
+                            .replace("${password}", password)
+                            .replace("${session}", String.valueOf(session));
+                    request.header("Content-Type", "application/json")
+                            .method(step.method, HttpRequest.BodyPublishers.ofString(body));
+                } else {
+                    request.method(step.method, HttpRequest.BodyPublishers.noBody());
+                }
+
+                boolean ok;
+                String responseBody = null;
+                try {
+                    HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+                    ok = response.statusCode() < 400;
+                    responseBody = response.body();
+                } catch (IOException e) {
+                    ok = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long micros = (System.nanoTime() - start) / 1000;
+                latencies.get(step.path).recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+                if (!ok) {
+                    errors.get(step.path).incrementAndGet();
+                } else if (responseBody != null && responseBody.contains("\"token\"")) {
+                    try {
+                        token = mapper.readTree(responseBody).path("token").asText(token);
+                    } catch (IOException e) {
+                        // Respuesta sin JSON válido: se conserva el token anterior
+                    }
+                }
+                start = 0;
+            }
+        }
+    }
+
+    void runClosedLoop(int concurrency, long endNanos) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            pool.execute(() -> {
+                while (running && System.nanoTime() < endNanos) {
+                    runSession(0);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    void runOpenLoop(int concurrency, double rate, long endNanos) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long next = System.nanoTime();
+        while (running && next < endNanos) {
+            long scheduled = next;
+            pool.execute(() -> runSession(scheduled));
+            next += interval;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+        // Las sesiones que siguen en cola ya llegaron tarde: se completan y se miden igual
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    void reset() {
+        latencies.values().forEach(Histogram::reset);
+        errors.values().forEach(counter -> counter.set(0));
+        sessionsAtReset = sessions.get();
+    }
+
+    /**
+     * Sesiones iniciadas desde el último {@link #reset()}.
+     */
+    long measuredSessions() {
+        return sessions.get() - sessionsAtReset;
+    }
+
+    void report(PrintStream out, double seconds) {
+        out.printf("%-26s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "peticiones", "errores", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        latencies.forEach((path, histogram) -> out.printf("%-26s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                path, histogram.getTotalCount(), errors.get(path).get(), histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue())));
+    }
+
+    /**
+     * Escribe la distribución completa de cada endpoint como {@code <endpoint>.hgrm}, el
+     * formato que grafica el plotter de HdrHistogram.
+     */
+    void writeDistributions(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        for (Map.Entry<String, ConcurrentHistogram> entry : latencies.entrySet()) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(entry.getKey() + ".hgrm")),
+                    false, StandardCharsets.UTF_8)) {
+                entry.getValue().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                System.err.println("Uso: LoadGenerator [--url URL] [--concurrency N] [--rate sesiones/s] "
+                        + "[--duration s] [--warmup s] [--traffic archivo.jsonl] [--hgrm directorio]");
+                System.exit(2);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        String url = options.getOrDefault("url", "http://127.0.0.1:8080/");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "8"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        long duration = Long.parseLong(options.getOrDefault("duration", "30"));
+        long warmup = Long.parseLong(options.getOrDefault("warmup", "5"));
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<Step> traffic;
+        String trafficFile = options.get("traffic");
+        try (InputStream in = trafficFile != null
+                ? Files.newInputStream(Path.of(trafficFile))
+                : LoadGenerator.class.getResourceAsStream("/traffic/swing-client.jsonl")) {
+            traffic = readTraffic(in, mapper);
+        }
+
+        LoadGenerator generator = new LoadGenerator(url, traffic);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> generator.running = false));
+        System.out.printf("Carga contra %s: %s, %d hilos, %d s (+%d s de calentamiento)%n", url,
+                rate > 0 ? "lazo abierto a " + rate + " sesiones/s" : "lazo cerrado", concurrency, duration, warmup);
+
+        if (warmup > 0) {
+            generator.run(concurrency, rate, warmup);
+            generator.reset();
+        }
+        long start = System.nanoTime();
+        generator.run(concurrency, rate, duration);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d sesiones en %.1f s%n", generator.measuredSessions(), seconds);
+        generator.report(System.out, seconds);
+        if (options.containsKey("hgrm")) {
+            generator.writeDistributions(Path.of(options.get("hgrm")));
+        }
+    }
+
+    private void run(int concurrency, double rate, long seconds) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        if (rate > 0) {
+            runOpenLoop(concurrency, rate, end);
+        } else {
+            runClosedLoop(concurrency, end);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@code parseNumericValue} con los formatos que envía el cliente Swing.
+ */
+@State(Scope.Benchmark)
+public class ParseNumericValueBenchmark {
+
+    @Param({"$ 2,500,000", "1500000", "", "abc"})
+    public String texto;
+
+    private final ApiApplication api = new ApiApplication();
+    private final Integer numero = 1_500_000;
+
+    @Benchmark
+    public double texto() {
+        return api.parseNumericValue(texto);
+    }
+
+    @Benchmark
+    public double numero() {
+        return api.parseNumericValue(numero);
+    }
+}
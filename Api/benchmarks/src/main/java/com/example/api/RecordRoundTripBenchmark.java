@@ -0,0 +1,94 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Escritura y relectura completa de una colección de registros financieros. {@code jsonArray}
+ * es el formato original de {@code data/} (el que usaban {@code readJsonArray} y
+ * {@code writeJsonArray}, hoy solo de importación y exportación); {@code snapshot} es el
+ * {@link BinarySnapshot} que escriben los checkpoints, leyendo cada registro como JSON.
+ */
+@State(Scope.Benchmark)
+public class RecordRoundTripBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int registros;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Path dir;
+    private ArrayNode array;
+    private List<StoredRecord> records;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("pim-bench");
+        array = mapper.createArrayNode();
+        records = new ArrayList<>(registros);
+        for (int i = 0; i < registros; i++) {
+            ObjectNode gastos = mapper.createObjectNode();
+            gastos.put("ingreso", 4_000_000.0);
+            gastos.put("arriendoHipo", 1_200_000.0);
+            gastos.put("services", 350_000.0);
+            gastos.put("alimentacion", 900_000.0);
+            gastos.put("transporte", 250_000.0);
+            gastos.put("otros", 100_000.0);
+            gastos.put("totalGastos", 2_800_000.0);
+            gastos.put("disponible", 1_200_000.0);
+
+            ObjectNode registro = mapper.createObjectNode();
+            registro.put("id", UUID.randomUUID().toString());
+            registro.put("email", "usuario" + i + "@example.com");
+            registro.put("timestamp", "Sat Oct 17 16:10:08 UTC 2026");
+            registro.put("fuenteIngreso", "Salario");
+            registro.set("gastos", gastos);
+            array.add(registro);
+            records.add(StoredRecord.of(registro));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public JsonNode jsonArray() throws IOException {
+        Path file = dir.resolve("financial_info.json");
+        mapper.writeValue(file.toFile(), array);
+        return mapper.readTree(file.toFile());
+    }
+
+    @Benchmark
+    public void snapshot(Blackhole bh) throws IOException {
+        Path file = dir.resolve("financial_info.snap");
+        BinarySnapshot.write(file, records, mapper);
+        BinarySnapshot snapshot = BinarySnapshot.open(file, mapper);
+        for (int i = 0; i < snapshot.size(); i++) {
+            bh.consume(snapshot.record(i).node());
+        }
+    }
+}
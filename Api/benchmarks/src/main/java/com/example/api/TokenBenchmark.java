@@ -0,0 +1,26 @@
+package com.example.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Emisión y validación de tokens JWT. {@code validar} reutiliza el mismo token, así que mide
+ * el camino con el token ya en caché; {@code validarSinCache} verifica la firma en cada
+ * llamada, que es lo que paga el primer pedido de cada sesión.
+ */
+public class TokenBenchmark {
+
+    @Benchmark
+    public String generar(ApiContext ctx) {
+        return ctx.api.generateToken(ApiContext.EMAIL);
+    }
+
+    @Benchmark
+    public String validar(ApiContext ctx) {
+        return ctx.api.validateToken(ctx.token);
+    }
+
+    @Benchmark
+    public String validarSinCache(ApiContext ctx) {
+        return ctx.api.parseToken(ctx.token).getSubject();
+    }
+}
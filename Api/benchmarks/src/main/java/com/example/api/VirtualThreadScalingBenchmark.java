@@ -0,0 +1,95 @@
+package com.example.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * {@code POST /info_financiera} por HTTP con muchos clientes concurrentes, con Tomcat sobre su
+ * pool de hilos ({@code platform}) o sobre hilos virtuales ({@code virtual}). Cada petición
+ * espera el fsync de su lote del group commit, así que con más clientes que hilos en el pool
+ * el modo {@code platform} deja peticiones en cola mientras el modo {@code virtual} las sigue
+ * aceptando. Para ver cómo escala, repetir con distintos {@code -t}:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar VirtualThreadScaling -t 64
+ * java -jar benchmarks/target/benchmarks.jar VirtualThreadScaling -t 1024
+ * </pre>
+ *
+ * Cada hilo de JMH usa su propio usuario, para no serializarse en el lock de un solo email.
+ */
+public class VirtualThreadScalingBenchmark {
+
+    private static final String BODY = "{\"ingreso\": 4000000, \"arriendoHipo\": 1200000, \"otros\": 100000}";
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        @Param({"platform", "virtual"})
+        String threads;
+
+        ConfigurableApplicationContext context;
+        ApiApplication api;
+        URI uri;
+        HttpClient http;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = new SpringApplicationBuilder(ApiApplication.class)
+                    .properties("spring.autoconfigure.exclude="
+                                    + "org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration",
+                            "server.port=0",
+                            "management.server.port=0",
+                            "spring.threads.virtual.enabled=" + "virtual".equals(threads))
+                    .run();
+            api = context.getBean(ApiApplication.class);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            uri = URI.create("http://127.0.0.1:" + port + "/info_financiera");
+            http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        HttpRequest request;
+
+        @Setup(Level.Trial)
+        public void login(Server server) {
+            String token = server.api.generateToken("threads-" + UUID.randomUUID() + "@example.com");
+            request = HttpRequest.newBuilder(server.uri)
+                    .header("Content-Type", "application/json")
+                    .header("x-access-token", token)
+                    .POST(HttpRequest.BodyPublishers.ofString(BODY))
+                    .build();
+        }
+    }
+
+    @Benchmark
+    @Threads(256)
+    public int guardar(Server server, Client client) throws IOException, InterruptedException {
+        return server.http.send(client.request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -2,67 +2,271 @@ package com.example.api;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.File;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.security.Key;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 @SpringBootApplication
 @RestController
 @CrossOrigin(origins = "*")
 public class ApiApplication {
+    private static final Logger log = LoggerFactory.getLogger(ApiApplication.class);
+    // Cuerpos completos de petición/respuesta, solo para las peticiones muestreadas
+    private static final Logger payloadLog = LoggerFactory.getLogger("com.example.api.payloads");
+
+    // Paginación de /obtener_info_personal
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int STREAM_CHUNK = 128;
+
+    // Ingesta por lotes (/batch/*): una línea NDJSON por registro
+    private static final String NDJSON = "application/x-ndjson";
+    private static final TypeReference<Map<String, Object>> DATOS = new TypeReference<>() { };
+    private static final String[] CAMPOS_FINANCIEROS = {
+        "ingreso", "arriendoHipo", "services", "alimentacion", "transporte", "otros"
+    };
+
     private final String DATA_DIR = "data";
-    private final String USERS_FILE = "data/users.json";
-    private final String PERSONAL_INFO_FILE = "data/personal_info.json";
-    private final String FINANCIAL_INFO_FILE = "data/financial_info.json";
     private final ObjectMapper mapper = new ObjectMapper();
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    // Representación binaria de /obtener_info_*, para clientes que envían Accept: application/cbor
+    private final ObjectMapper cborMapper = new CBORMapper();
     private final Key signingKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    // El parser es inmutable y seguro entre hilos: se construye una sola vez
+    private final JwtParser jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+
+    @Value("${pim.security.bcrypt.strength:10}")
+    private int bcryptStrength;
+    @Value("${pim.security.bcrypt.threads:0}")
+    private int bcryptThreads;
+    @Value("${pim.security.bcrypt.queue-capacity:64}")
+    private int bcryptQueueCapacity;
+    @Value("${pim.security.bcrypt.timeout-ms:5000}")
+    private long bcryptTimeoutMs;
+    @Value("${pim.security.bcrypt.retry-after-seconds:1}")
+    private int bcryptRetryAfterSeconds;
+    @Value("${pim.security.token-cache.max-entries:10000}")
+    private int tokenCacheMaxEntries;
+    @Value("${pim.storage.engine:json}")
+    private String storageEngineName;
+    @Value("${pim.storage.mvstore.file:data/pim.mv.db}")
+    private String mvStoreFile;
+    @Value("${pim.storage.lock-stripes:64}")
+    private int lockStripes;
+    @Value("${pim.storage.group-commit.window-ms:2}")
+    private long groupCommitWindowMs;
+    @Value("${pim.storage.group-commit.max-batch-size:256}")
+    private int groupCommitMaxBatch;
+    @Value("${pim.storage.journal.compaction-threshold-bytes:1048576}")
+    private long compactionThresholdBytes;
+    @Value("${pim.storage.journal.compaction-interval-ms:30000}")
+    private long compactionIntervalMs;
+    @Value("${pim.storage.snapshot.export-json:false}")
+    private boolean exportJsonSnapshot;
+    @Value("${pim.logging.payload-sample-rate:0.0}")
+    private double payloadSampleRate;
+    @Value("${pim.batch.chunk-size:500}")
+    private int batchChunkSize;
+    @Value("${pim.batch.import-emails:}")
+    private List<String> batchImportEmails;
+
+    // Repositorios en memoria: cada colección se lee una sola vez al iniciar
+    private StorageEngine storage;
+    private RecordCollection users;
+    private RecordCollection personalInfo;
+    private RecordCollection financialInfo;
+    private FinancialSummaryView financialView;
+    private final UserRevisions revisions = new UserRevisions();
+    private ScheduledExecutorService storageScheduler;
+    private TokenCache tokenCache;
+    private PasswordHasher passwordHasher;
+    private final EmailIndex emailIndex = new EmailIndex();
+
+    // Métricas (ver /actuator/prometheus); los handlers ya se miden con http.server.requests
+    @Autowired
+    private MeterRegistry meterRegistry;
+    private Timer jwtCacheHitTimer;
+    private Timer jwtParseTimer;
+    private Timer userReads;
+    private Timer personalReads;
+    private Timer financialReads;
 
     @PostConstruct
-    public void init() {
-        new File(DATA_DIR).mkdirs();
-        initializeJsonFile(USERS_FILE);
-        initializeJsonFile(PERSONAL_INFO_FILE);
-        initializeJsonFile(FINANCIAL_INFO_FILE);
+    public void init() throws IOException {
+        tokenCache = new TokenCache(tokenCacheMaxEntries);
+        passwordHasher = new PasswordHasher(bcryptStrength, bcryptThreads, bcryptQueueCapacity, bcryptTimeoutMs,
+                meterRegistry);
+        storage = new MeteredStorageEngine(newStorageEngine(), meterRegistry);
+        registerMetrics();
+
+        // Las tres colecciones comparten los locks por usuario
+        StripedLock userLocks = new StripedLock(lockStripes);
+        users = new RecordCollection(StorageEngine.USERS, storage, userLocks);
+        personalInfo = new RecordCollection(StorageEngine.PERSONAL_INFO, storage, userLocks);
+        financialInfo = new RecordCollection(StorageEngine.FINANCIAL_INFO, storage, userLocks);
+        long start = System.nanoTime();
+        users.load();
+        personalInfo.load();
+        financialInfo.load();
+        financialView = new FinancialSummaryView(mapper, cborMapper, financialInfo);
+        log.info("Colecciones cargadas usuarios={} personales={} financieros={} ms={}",
+                users.size(), personalInfo.size(), financialInfo.size(), (System.nanoTime() - start) / 1_000_000);
+
+        start = System.nanoTime();
+        int indexed = emailIndex.rebuild(users);
+        log.info("Índice de emails reconstruido entradas={} ms={}", indexed, (System.nanoTime() - start) / 1_000_000);
+
+        // Mantenimiento del almacenamiento (compactación de journals) en segundo plano
+        storageScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pim-storage");
+            t.setDaemon(true);
+            return t;
+        });
+        storageScheduler.scheduleWithFixedDelay(this::compactStorage,
+                compactionIntervalMs, compactionIntervalMs, TimeUnit.MILLISECONDS);
     }
 
-    private void initializeJsonFile(String filePath) {
-        File file = new File(filePath);
-        if (!file.exists()) {
-            try {
-                mapper.writeValue(file, mapper.createArrayNode());
-            } catch (IOException e) {
-                e.printStackTrace();
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (storageScheduler != null) {
+            storageScheduler.shutdown();
+        }
+        passwordHasher.shutdown();
+        storage.close();
+        log.info("Caché de JWT al cerrar: {}", tokenCache);
+    }
+
+    private void registerMetrics() {
+        jwtCacheHitTimer = Timer.builder("pim.jwt.validation").tag("cache", "hit").register(meterRegistry);
+        jwtParseTimer = Timer.builder("pim.jwt.validation").tag("cache", "miss").register(meterRegistry);
+        FunctionCounter.builder("pim.jwt.cache.requests", tokenCache, TokenCache::hits)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("pim.jwt.cache.requests", tokenCache, TokenCache::misses)
+                .tag("result", "miss").register(meterRegistry);
+        Gauge.builder("pim.jwt.cache.hit.ratio", tokenCache, TokenCache::hitRate).register(meterRegistry);
+        Gauge.builder("pim.jwt.cache.size", tokenCache, TokenCache::size).register(meterRegistry);
+
+        // Las lecturas se sirven desde memoria: miden índices + parseo perezoso del JSON
+        userReads = readTimer(StorageEngine.USERS);
+        personalReads = readTimer(StorageEngine.PERSONAL_INFO);
+        financialReads = readTimer(StorageEngine.FINANCIAL_INFO);
+    }
+
+    private Timer readTimer(String collection) {
+        return Timer.builder("pim.storage.read")
+                .tag("collection", collection)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private ObjectNode findLatestFinancial(String email) {
+        return financialReads.record(() -> financialInfo.findLatestByEmail(email));
+    }
+
+    private byte[] financialSummary(String email, boolean cbor) {
+        return financialReads.record(() -> financialView.get(email, cbor));
+    }
+
+    /**
+     * Si el header Accept prefiere CBOR: lo pide explícitamente con una calidad mayor que la
+     * de JSON. Con la misma calidad gana JSON (RestTemplate, con Jackson CBOR en el
+     * classpath, manda las dos por defecto). Sin header, o si no se puede leer, JSON.
+     */
+    static boolean acceptsCbor(String accept) {
+        if (accept == null || accept.isEmpty()) {
+            return false;
+        }
+        double cbor = 0.0;
+        double json = 0.0;
+        try {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (type.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)) {
+                    cbor = Math.max(cbor, type.getQualityValue());
+                } else if (type.equalsTypeAndSubtype(MediaType.APPLICATION_JSON)) {
+                    json = Math.max(json, type.getQualityValue());
+                }
             }
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        return cbor > json;
+    }
+
+    private StorageEngine newStorageEngine() throws IOException {
+        switch (storageEngineName) {
+            case "json":
+                return new JsonFileStorageEngine(Path.of(DATA_DIR), mapper,
+                        groupCommitWindowMs, groupCommitMaxBatch, compactionThresholdBytes, exportJsonSnapshot);
+            case "mvstore":
+                return new MvStoreStorageEngine(Path.of(mvStoreFile), mapper,
+                        groupCommitWindowMs, groupCommitMaxBatch);
+            default:
+                throw new IllegalStateException("pim.storage.engine desconocido: " + storageEngineName);
         }
     }
 
-    private ArrayNode readJsonArray(String filePath) throws IOException {
-        File file = new File(filePath);
-        if (!file.exists()) {
-            return mapper.createArrayNode();
+    private void compactStorage() {
+        try {
+            users.compact();
+            personalInfo.compact();
+            financialInfo.compact();
+        } catch (IOException e) {
+            log.error("Error compactando el almacenamiento", e);
         }
-        return (ArrayNode) mapper.readTree(file);
     }
 
-    private void writeJsonArray(String filePath, ArrayNode array) throws IOException {
-        mapper.writeValue(new File(filePath), array);
+    /**
+     * Decide si se registra el cuerpo completo de esta petición, según
+     * {@code pim.logging.payload-sample-rate}.
+     */
+    private boolean samplePayload() {
+        return payloadSampleRate > 0 && payloadLog.isDebugEnabled()
+                && ThreadLocalRandom.current().nextDouble() < payloadSampleRate;
     }
 
-    private double parseNumericValue(Object value) {
+    double parseNumericValue(Object value) {
         if (value == null) return 0.0;
         
         try {
@@ -82,7 +286,7 @@ public class ApiApplication {
         return 0.0;
     }
 
-    private String generateToken(String email) {
+    String generateToken(String email) {
         return Jwts.builder()
                 .setSubject(email)
                 .setExpiration(new Date(System.currentTimeMillis() + 86400000))
@@ -90,19 +294,49 @@ public class ApiApplication {
                 .compact();
     }
 
-    private String validateToken(String token) {
+    String validateToken(String token) {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        String cached = tokenCache.get(token, now);
+        if (cached != null) {
+            jwtCacheHitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return cached;
+        }
+        try {
+            Claims claims = parseToken(token);
+            if (claims == null) {
+                return null;
+            }
+            Date expiration = claims.getExpiration();
+            if (expiration != null) {
+                tokenCache.put(token, claims.getSubject(), expiration.getTime(), now);
+            }
+            return claims.getSubject();
+        } finally {
+            jwtParseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Verifica firma y expiración del token sin pasar por la caché. Null si no es válido.
+     */
+    Claims parseToken(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(signingKey)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody()
-                    .getSubject();
+            return jwtParser.parseClaimsJws(token).getBody();
         } catch (Exception e) {
             return null;
         }
     }
 
+    /**
+     * Respuesta cuando el pool de BCrypt está saturado: el cliente debe reintentar.
+     */
+    private ResponseEntity<?> hashingBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(bcryptRetryAfterSeconds))
+                .body(Map.of("error", "Servidor ocupado, intenta de nuevo en unos segundos"));
+    }
+
     @PostMapping("/registro")
     public ResponseEntity<?> registro(@RequestBody Map<String, String> credentials) {
         try {
@@ -113,27 +347,37 @@ public class ApiApplication {
                 return ResponseEntity.badRequest().body(Map.of("error", "Email y password son requeridos"));
             }
 
-            ArrayNode users = readJsonArray(USERS_FILE);
-            
-            for (int i = 0; i < users.size(); i++) {
-                if (users.get(i).get("email").asText().equals(email)) {
-                    return ResponseEntity.badRequest().body(Map.of("error", "El email ya está registrado"));
-                }
+            // Chequeo rápido antes de pagar el costo de BCrypt
+            if (emailIndex.contains(email)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "El email ya está registrado"));
             }
 
             ObjectNode newUser = mapper.createObjectNode();
             newUser.put("id", UUID.randomUUID().toString());
             newUser.put("email", email);
-            newUser.put("password", passwordEncoder.encode(password));
-            users.add(newUser);
+            newUser.put("password", passwordHasher.encode(password));
+            String userId = newUser.get("id").asText();
 
-            writeJsonArray(USERS_FILE, users);
+            // La reserva es atómica: dos registros simultáneos del mismo email no pasan ambos
+            if (!emailIndex.reserve(email, userId)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "El email ya está registrado"));
+            }
+            try {
+                // La respuesta sale cuando el lote del group commit ya está en disco
+                users.save(newUser);
+            } catch (IOException | RuntimeException e) {
+                // save() ya quitó al usuario de la colección; falta liberar el email
+                emailIndex.release(email, userId);
+                throw e;
+            }
 
             return ResponseEntity.ok(Map.of(
                 "mensaje", "Usuario registrado exitosamente",
                 "id", newUser.get("id").asText()
             ));
 
+        } catch (RejectedExecutionException e) {
+            return hashingBusy();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Error en el registro: " + e.getMessage()));
@@ -151,27 +395,27 @@ public class ApiApplication {
                 return ResponseEntity.badRequest().body(Map.of("error", "Email y password son requeridos"));
             }
 
-            ArrayNode users = readJsonArray(USERS_FILE);
-            
-            for (int i = 0; i < users.size(); i++) {
-                ObjectNode user = (ObjectNode) users.get(i);
-                if (user.get("email").asText().equals(email)) {
-                    if (passwordEncoder.matches(password, user.get("password").asText())) {
-                        String token = generateToken(email);
-                        return ResponseEntity.ok(Map.of(
-                            "mensaje", "Login exitoso",
-                            "token", token
-                        ));
-                    } else {
-                        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                            .body(Map.of("error", "Contraseña incorrecta"));
-                    }
+            String userId = emailIndex.idFor(email);
+            ObjectNode user = userId != null ? userReads.record(() -> users.findById(userId)).orElse(null) : null;
+            if (user != null) {
+                if (passwordHasher.matches(password, user.get("password").asText())) {
+                    // El token lleva el email tal como se registró, que es la clave de sus datos
+                    String token = generateToken(user.get("email").asText());
+                    return ResponseEntity.ok(Map.of(
+                        "mensaje", "Login exitoso",
+                        "token", token
+                    ));
+                } else {
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(Map.of("error", "Contraseña incorrecta"));
                 }
             }
             
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                 .body(Map.of("error", "Usuario no encontrado"));
 
+        } catch (RejectedExecutionException e) {
+            return hashingBusy();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Error en el login: " + e.getMessage()));
@@ -188,33 +432,10 @@ public class ApiApplication {
         }
 
         try {
-            ArrayNode infoPersonal = readJsonArray(PERSONAL_INFO_FILE);
-            
-            ObjectNode newInfo = mapper.createObjectNode();
-            newInfo.put("id", UUID.randomUUID().toString());
-            newInfo.put("email", email);
-            newInfo.put("timestamp", new Date().toString());
-            
-            datos.forEach((key, value) -> {
-                if (value instanceof String) {
-                    newInfo.put(key, (String) value);
-                } else if (value instanceof Integer) {
-                    newInfo.put(key, (Integer) value);
-                } else if (value instanceof Long) {
-                    newInfo.put(key, (Long) value);
-                } else if (value instanceof Double) {
-                    newInfo.put(key, (Double) value);
-                } else if (value instanceof Float) {
-                    newInfo.put(key, (Float) value);
-                } else if (value instanceof Boolean) {
-                    newInfo.put(key, (Boolean) value);
-                } else if (value instanceof Number) {
-                    newInfo.put(key, ((Number) value).doubleValue());
-                }
-            });
+            ObjectNode newInfo = personalRecord(email, datos);
 
-            infoPersonal.add(newInfo);
-            writeJsonArray(PERSONAL_INFO_FILE, infoPersonal);
+            personalInfo.save(newInfo);
+            revisions.increment(email);
 
             return ResponseEntity.ok(Map.of(
                 "mensaje", "Información personal guardada correctamente",
@@ -227,6 +448,36 @@ public class ApiApplication {
         }
     }
 
+    /**
+     * Registro nuevo de información personal: id, email y timestamp más los campos
+     * escalares de {@code datos} (los objetos y arreglos se descartan).
+     */
+    private ObjectNode personalRecord(String email, Map<String, Object> datos) {
+        ObjectNode newInfo = mapper.createObjectNode();
+        newInfo.put("id", UUID.randomUUID().toString());
+        newInfo.put("email", email);
+        newInfo.put("timestamp", new Date().toString());
+
+        datos.forEach((key, value) -> {
+            if (value instanceof String) {
+                newInfo.put(key, (String) value);
+            } else if (value instanceof Integer) {
+                newInfo.put(key, (Integer) value);
+            } else if (value instanceof Long) {
+                newInfo.put(key, (Long) value);
+            } else if (value instanceof Double) {
+                newInfo.put(key, (Double) value);
+            } else if (value instanceof Float) {
+                newInfo.put(key, (Float) value);
+            } else if (value instanceof Boolean) {
+                newInfo.put(key, (Boolean) value);
+            } else if (value instanceof Number) {
+                newInfo.put(key, ((Number) value).doubleValue());
+            }
+        });
+        return newInfo;
+    }
+
     @PostMapping("/info_financiera")
     @CrossOrigin(origins = "*")
     public ResponseEntity<?> guardarInfoFinanciera(
@@ -241,85 +492,39 @@ public class ApiApplication {
                 }
             }
 
-            System.out.println("🔍 Datos recibidos completos: " + datos);
+            if (samplePayload()) {
+                payloadLog.debug("Petición /info_financiera email={} datos={}", email, datos);
+            }
 
-            double ingreso = parseNumericValue(datos.get("ingreso"));
-            double arriendoHipo = parseNumericValue(datos.get("arriendoHipo"));
-            double services = parseNumericValue(datos.get("services"));
-            double alimentacion = parseNumericValue(datos.get("alimentacion"));
-            double transporte = parseNumericValue(datos.get("transporte"));
-            double otros = parseNumericValue(datos.get("otros"));
-            
-            String fuenteIngreso = datos.containsKey("fuenteIngreso") 
-                ? datos.get("fuenteIngreso").toString() 
-                : datos.getOrDefault("fuenteIngresos", "No especificado").toString();
-            
-            double totalGastos = arriendoHipo + services + alimentacion + transporte + otros;
-            double disponible = ingreso - totalGastos;
+            ObjectNode gastosInfo = gastos(datos);
+            String fuenteIngreso = fuenteIngreso(datos);
 
-            System.out.println("💰 Ingreso: " + ingreso);
-            System.out.println("💸 Total Gastos: " + totalGastos);
-            System.out.println("✅ Disponible: " + disponible);
+            // Un registro por email: si ya existe se reemplaza conservando su id.
+            // La lectura y la escritura van bajo el lock del usuario para no perder actualizaciones.
+            CompletableFuture<Void> commit;
+            Lock userLock = financialInfo.lockFor(email);
+            userLock.lock();
+            try {
+                ObjectNode existente = findLatestFinancial(email);
 
-            ArrayNode infoFinanciera = readJsonArray(FINANCIAL_INFO_FILE);
-            
-            boolean encontrado = false;
-            for (int i = 0; i < infoFinanciera.size(); i++) {
-                ObjectNode registro = (ObjectNode) infoFinanciera.get(i);
-                if (registro.get("email").asText().equals(email)) {
-                    registro.put("timestamp", new Date().toString());
-                    registro.put("fuenteIngreso", fuenteIngreso);
-                    
-                    ObjectNode gastosInfo = mapper.createObjectNode();
-                    gastosInfo.put("ingreso", ingreso);
-                    gastosInfo.put("arriendoHipo", arriendoHipo);
-                    gastosInfo.put("services", services);
-                    gastosInfo.put("alimentacion", alimentacion);
-                    gastosInfo.put("transporte", transporte);
-                    gastosInfo.put("otros", otros);
-                    gastosInfo.put("totalGastos", totalGastos);
-                    gastosInfo.put("disponible", disponible);
-                    
-                    registro.set("gastos", gastosInfo);
-                    encontrado = true;
-                    break;
+                ObjectNode registro = financialRecord(email, fuenteIngreso, gastosInfo);
+                if (existente != null) {
+                    registro.put("id", existente.get("id").asText());
                 }
+                commit = financialInfo.saveAsync(registro);
+                financialView.update(email, registro);
+                revisions.increment(email);
+            } finally {
+                userLock.unlock();
             }
-            
-            if (!encontrado) {
-                ObjectNode newInfo = mapper.createObjectNode();
-                newInfo.put("id", UUID.randomUUID().toString());
-                newInfo.put("email", email);
-                newInfo.put("timestamp", new Date().toString());
-                newInfo.put("fuenteIngreso", fuenteIngreso);
-                
-                ObjectNode gastosInfo = mapper.createObjectNode();
-                gastosInfo.put("ingreso", ingreso);
-                gastosInfo.put("arriendoHipo", arriendoHipo);
-                gastosInfo.put("services", services);
-                gastosInfo.put("alimentacion", alimentacion);
-                gastosInfo.put("transporte", transporte);
-                gastosInfo.put("otros", otros);
-                gastosInfo.put("totalGastos", totalGastos);
-                gastosInfo.put("disponible", disponible);
-                
-                newInfo.set("gastos", gastosInfo);
-                infoFinanciera.add(newInfo);
+            awaitFinancialCommit(commit, List.of(email));
+
+            if (log.isDebugEnabled()) {
+                log.debug("Info financiera guardada email={} ingreso={} totalGastos={} disponible={}",
+                        email, gastosInfo.get("ingreso"), gastosInfo.get("totalGastos"), gastosInfo.get("disponible"));
             }
-            
-            writeJsonArray(FINANCIAL_INFO_FILE, infoFinanciera);
-
-            System.out.println("✅ Datos guardados exitosamente");
-
-            ObjectNode response = mapper.createObjectNode();
-            response.put("ingreso", ingreso);
-            response.put("arriendoHipo", arriendoHipo);
-            response.put("services", services);
-            response.put("alimentacion", alimentacion);
-            response.put("transporte", transporte);
-            response.put("otros", otros);
-            response.put("totalGastos", totalGastos);
-            response.put("disponible", disponible);
+
+            ObjectNode response = gastosInfo.deepCopy();
             response.put("fuenteIngreso", fuenteIngreso);
 
             return ResponseEntity.ok(Map.of(
@@ -327,17 +532,63 @@ public class ApiApplication {
                 "gastos", response
             ));
         } catch (Exception e) {
-            e.printStackTrace();
-            System.err.println("❌ Error: " + e.getMessage());
+            log.error("Error al guardar la información financiera", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Error al guardar la información: " + e.getMessage()));
         }
     }
 
+    /**
+     * Gastos calculados a partir de los valores recibidos (ver {@link #parseNumericValue}).
+     */
+    private ObjectNode gastos(Map<String, Object> datos) {
+        double ingreso = parseNumericValue(datos.get("ingreso"));
+        double arriendoHipo = parseNumericValue(datos.get("arriendoHipo"));
+        double services = parseNumericValue(datos.get("services"));
+        double alimentacion = parseNumericValue(datos.get("alimentacion"));
+        double transporte = parseNumericValue(datos.get("transporte"));
+        double otros = parseNumericValue(datos.get("otros"));
+
+        double totalGastos = arriendoHipo + services + alimentacion + transporte + otros;
+        double disponible = ingreso - totalGastos;
+
+        ObjectNode gastosInfo = mapper.createObjectNode();
+        gastosInfo.put("ingreso", ingreso);
+        gastosInfo.put("arriendoHipo", arriendoHipo);
+        gastosInfo.put("services", services);
+        gastosInfo.put("alimentacion", alimentacion);
+        gastosInfo.put("transporte", transporte);
+        gastosInfo.put("otros", otros);
+        gastosInfo.put("totalGastos", totalGastos);
+        gastosInfo.put("disponible", disponible);
+        return gastosInfo;
+    }
+
+    private static String fuenteIngreso(Map<String, Object> datos) {
+        return datos.containsKey("fuenteIngreso")
+            ? datos.get("fuenteIngreso").toString()
+            : datos.getOrDefault("fuenteIngresos", "No especificado").toString();
+    }
+
+    /**
+     * Registro financiero con id nuevo; quien reemplace uno existente le pone el id anterior.
+     */
+    private ObjectNode financialRecord(String email, String fuenteIngreso, ObjectNode gastosInfo) {
+        ObjectNode registro = mapper.createObjectNode();
+        registro.put("id", UUID.randomUUID().toString());
+        registro.put("email", email);
+        registro.put("timestamp", new Date().toString());
+        registro.put("fuenteIngreso", fuenteIngreso);
+        registro.set("gastos", gastosInfo);
+        return registro;
+    }
+
     @GetMapping("/obtener_info_financiera")
     @CrossOrigin(origins = "*")
     public ResponseEntity<?> obtenerInfoFinanciera(
-            @RequestHeader(value = "x-access-token", required = false) String token) {
+            @RequestHeader(value = "x-access-token", required = false) String token,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         try {
             String email = "default@example.com";
             if (token != null && !token.isEmpty()) {
@@ -347,101 +598,481 @@ public class ApiApplication {
                 }
             }
 
-            System.out.println("🔍 Buscando datos para email: " + email);
-
-            ArrayNode infoFinanciera = readJsonArray(FINANCIAL_INFO_FILE);
-            
-            // Buscar desde el final (el más reciente)
-            ObjectNode registroMasReciente = null;
-            for (int i = infoFinanciera.size() - 1; i >= 0; i--) {
-                ObjectNode registro = (ObjectNode) infoFinanciera.get(i);
-                if (registro.get("email").asText().equals(email)) {
-                    registroMasReciente = registro;
-                    break; // Encontramos el más reciente
-                }
+            boolean cbor = acceptsCbor(accept);
+            // La revisión se toma antes de leer: el ETag nunca es más nuevo que el cuerpo
+            String etag = revisions.etag(cbor ? "fin-cbor" : "fin", email);
+            if (UserRevisions.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
             }
-            
-            if (registroMasReciente != null) {
-                ObjectNode gastosObj = (ObjectNode) registroMasReciente.get("gastos");
-                
-                if (gastosObj != null) {
-                    Map<String, Object> response = new java.util.HashMap<>();
-                    response.put("ingreso", gastosObj.path("ingreso").asDouble(0.0));
-                    response.put("arriendoHipo", gastosObj.path("arriendoHipo").asDouble(0.0));
-                    response.put("services", gastosObj.path("services").asDouble(0.0));
-                    response.put("alimentacion", gastosObj.path("alimentacion").asDouble(0.0));
-                    response.put("transporte", gastosObj.path("transporte").asDouble(0.0));
-                    response.put("otros", gastosObj.path("otros").asDouble(0.0));
-                    response.put("totalGastos", gastosObj.path("totalGastos").asDouble(0.0));
-                    response.put("disponible", gastosObj.path("disponible").asDouble(0.0));
-                    response.put("fuenteIngreso", registroMasReciente.path("fuenteIngreso").asText("No especificado"));
-                    
-                    response.put("categorias", java.util.Arrays.asList(
-                        "Arriendo/Hipoteca", "Servicios", "Alimentación", 
-                        "Transporte", "Otros"
-                    ));
-                    response.put("valores", java.util.Arrays.asList(
-                        gastosObj.path("arriendoHipo").asDouble(0.0),
-                        gastosObj.path("services").asDouble(0.0),
-                        gastosObj.path("alimentacion").asDouble(0.0),
-                        gastosObj.path("transporte").asDouble(0.0),
-                        gastosObj.path("otros").asDouble(0.0)
-                    ));
-                    
-                    System.out.println("📊 Datos encontrados para gráfica: " + response);
-                    
-                    return ResponseEntity.ok(response);
-                }
+
+            // Bytes ya serializados de la vista materializada
+            byte[] response = financialSummary(email, cbor);
+            if (samplePayload() && !cbor) {
+                payloadLog.debug("Respuesta /obtener_info_financiera email={} respuesta={}", email,
+                        new String(response, StandardCharsets.UTF_8));
             }
+            return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT)
+                    .contentType(cbor ? MediaType.APPLICATION_CBOR : MediaType.APPLICATION_JSON)
+                    .body(response);
 
-            System.out.println("⚠️ No se encontraron datos para el email: " + email);
-
-            // Si no hay información, devolver valores por defecto
-            Map<String, Object> defaultResponse = new java.util.HashMap<>();
-            defaultResponse.put("ingreso", 0.0);
-            defaultResponse.put("arriendoHipo", 0.0);
-            defaultResponse.put("services", 0.0);
-            defaultResponse.put("alimentacion", 0.0);
-            defaultResponse.put("transporte", 0.0);
-            defaultResponse.put("otros", 0.0);
-            defaultResponse.put("totalGastos", 0.0);
-            defaultResponse.put("disponible", 0.0);
-            defaultResponse.put("fuenteIngreso", "");
-            defaultResponse.put("categorias", java.util.Arrays.asList("Arriendo/Hipoteca", "Servicios", "Alimentación", "Transporte", "Otros"));
-            defaultResponse.put("valores", java.util.Arrays.asList(0.0, 0.0, 0.0, 0.0, 0.0));
-
-            return ResponseEntity.ok(defaultResponse);
-            
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Error al obtener la información financiera", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Error al obtener la información: " + e.getMessage()));
         }
     }
 
+    /**
+     * Historial de información personal del usuario, como arreglo JSON escrito registro a
+     * registro con un {@link JsonGenerator} (sin armar un árbol con todo el historial).
+     *
+     * <p>Sin {@code limit} se transmite el historial completo, leyéndolo por tramos de
+     * {@link #STREAM_CHUNK} registros. Con {@code limit} (hasta {@link #MAX_PAGE_SIZE}) se
+     * devuelve una página; si quedan más registros, el id del último va en el header
+     * {@code X-Next-Cursor} y se pasa como {@code after} para pedir la siguiente.</p>
+     *
+     * <p>Las respuestas llevan un ETag con la revisión de los datos del usuario; si el
+     * {@code If-None-Match} coincide se contesta 304 sin leer el historial. Con
+     * {@code Accept: application/cbor} el arreglo se escribe en CBOR en vez de JSON.</p>
+     */
     @GetMapping("/obtener_info_personal")
-    public ResponseEntity<?> obtenerInfoPersonal(@RequestHeader("x-access-token") String token) {
+    public ResponseEntity<StreamingResponseBody> obtenerInfoPersonal(@RequestHeader("x-access-token") String token,
+                                                 @RequestParam(value = "limit", required = false) Integer limit,
+                                                 @RequestParam(value = "after", required = false) String after,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        String email = validateToken(token);
+        if (email == null) {
+            return streamingError(HttpStatus.UNAUTHORIZED, "Token inválido");
+        }
+        if (limit != null && limit < 1) {
+            return streamingError(HttpStatus.BAD_REQUEST, "limit debe ser mayor que 0");
+        }
+
+        boolean cbor = acceptsCbor(accept);
+        ObjectMapper format = cbor ? cborMapper : mapper;
+        MediaType contentType = cbor ? MediaType.APPLICATION_CBOR : MediaType.APPLICATION_JSON;
+        String etag = revisions.etag(cbor ? "per-cbor" : "per", email);
+        if (UserRevisions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+
+        try {
+            if (limit == null) {
+                // El primer tramo se lee aquí para que un cursor inválido todavía pueda ser un 400
+                List<ObjectNode> first = findPersonal(email, after, STREAM_CHUNK);
+                StreamingResponseBody body = out -> writePersonal(out, format, email, first, first.size() == STREAM_CHUNK);
+                return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).contentType(contentType).body(body);
+            }
+
+            int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+            // Un registro de más indica si hay página siguiente
+            List<ObjectNode> records = findPersonal(email, after, pageSize + 1);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT)
+                    .contentType(contentType);
+            List<ObjectNode> page = records;
+            if (records.size() > pageSize) {
+                page = records.subList(0, pageSize);
+                response.header(NEXT_CURSOR_HEADER, page.get(pageSize - 1).path("id").asText());
+            }
+            List<ObjectNode> pageRecords = page;
+            StreamingResponseBody body = out -> writePersonal(out, format, email, pageRecords, false);
+            return response.body(body);
+
+        } catch (IllegalArgumentException e) {
+            return streamingError(HttpStatus.BAD_REQUEST, "Cursor inválido");
+        } catch (Exception e) {
+            return streamingError(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Error al obtener la información: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Error con el cuerpo {@code {"error": ...}} de siempre, para los handlers que devuelven
+     * {@code ResponseEntity<StreamingResponseBody>}: Spring solo transmite el cuerpo por
+     * tramos si el tipo declarado del handler lo dice (con {@code ResponseEntity<?>} lo
+     * serializa Jackson como un objeto vacío).
+     */
+    private ResponseEntity<StreamingResponseBody> streamingError(HttpStatus status, String error) {
+        byte[] body;
+        try {
+            body = mapper.writeValueAsBytes(Map.of("error", error));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(out -> out.write(body));
+    }
+
+    private List<ObjectNode> findPersonal(String email, String after, int limit) {
+        return personalReads.record(() -> personalInfo.findByEmail(email, after, limit));
+    }
+
+    /**
+     * Escribe {@code records} como arreglo en el formato de {@code format} (JSON o CBOR).
+     * Con {@code more} sigue leyendo tramos después del último registro escrito hasta
+     * agotar el historial; así nunca hay más de un tramo en memoria.
+     */
+    private void writePersonal(OutputStream out, ObjectMapper format, String email, List<ObjectNode> records,
+                               boolean more) throws IOException {
+        try (JsonGenerator generator = format.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            writePersonalArray(generator, format, email, records, more);
+        }
+    }
+
+    /**
+     * El arreglo de {@link #writePersonal} sobre un generador ya abierto; devuelve cuántos
+     * registros escribió.
+     */
+    private int writePersonalArray(JsonGenerator generator, ObjectMapper format, String email,
+                                   List<ObjectNode> records, boolean more) throws IOException {
+        int written = 0;
+        generator.writeStartArray();
+        List<ObjectNode> chunk = records;
+        while (true) {
+            for (ObjectNode record : chunk) {
+                format.writeTree(generator, record);
+            }
+            written += chunk.size();
+            if (!more || chunk.size() < STREAM_CHUNK) {
+                break;
+            }
+            try {
+                chunk = findPersonal(email, chunk.get(chunk.size() - 1).path("id").asText(), STREAM_CHUNK);
+            } catch (IllegalArgumentException e) {
+                // El último registro escrito cambió de posición: no hay forma de continuar
+                log.warn("Historial personal interrumpido email={}", email);
+                break;
+            }
+        }
+        generator.writeEndArray();
+        return written;
+    }
+
+    /**
+     * Todo lo que muestra la pantalla de resumen del cliente en una sola respuesta, con un
+     * solo token que validar: {@code financiera} es lo mismo que devuelve
+     * {@code /obtener_info_financiera} (incluye las series {@code categorias} y
+     * {@code valores} del gráfico), {@code personas} el historial completo y
+     * {@code total_registros} su tamaño.
+     *
+     * <p>La parte financiera sale ya serializada de la vista materializada y el historial se
+     * transmite por tramos como en {@link #obtenerInfoPersonal}, todo en una sola pasada
+     * sobre el mismo generador. Lleva ETag y admite CBOR igual que los {@code obtener_*}.</p>
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<StreamingResponseBody> dashboard(@RequestHeader("x-access-token") String token,
+                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                       @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        String email = validateToken(token);
+        if (email == null) {
+            return streamingError(HttpStatus.UNAUTHORIZED, "Token inválido");
+        }
+
+        boolean cbor = acceptsCbor(accept);
+        ObjectMapper format = cbor ? cborMapper : mapper;
+        String etag = revisions.etag(cbor ? "dash-cbor" : "dash", email);
+        if (UserRevisions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+
+        try {
+            byte[] financiera = financialSummary(email, cbor);
+            List<ObjectNode> first = findPersonal(email, null, STREAM_CHUNK);
+            StreamingResponseBody body = out -> {
+                try (JsonGenerator generator = format.getFactory().createGenerator(out)) {
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    generator.writeStartObject();
+                    generator.writeFieldName("financiera");
+                    if (cbor) {
+                        // CBOR no admite valores crudos: se reescribe el árbol
+                        format.writeTree(generator, cborMapper.readTree(financiera));
+                    } else {
+                        generator.writeRawValue(new String(financiera, StandardCharsets.UTF_8));
+                    }
+                    generator.writeFieldName("personas");
+                    int total = writePersonalArray(generator, format, email, first, first.size() == STREAM_CHUNK);
+                    generator.writeNumberField("total_registros", total);
+                    generator.writeEndObject();
+                }
+            };
+            return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT)
+                    .contentType(cbor ? MediaType.APPLICATION_CBOR : MediaType.APPLICATION_JSON)
+                    .body(body);
+
+        } catch (Exception e) {
+            log.error("Error al obtener el dashboard", e);
+            return streamingError(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Error al obtener la información: " + e.getMessage());
+        }
+    }
+
+    // =====================================================
+    // INGESTA POR LOTES
+    // =====================================================
+
+    /**
+     * Convierte una línea ya leída (sin id ni email) en el registro a guardar, o lanza
+     * {@link IllegalArgumentException} si no es válida.
+     */
+    private interface LineParser {
+        ObjectNode parse(String email, Map<String, Object> datos);
+    }
+
+    /**
+     * Guarda un tramo de registros válidos y vuelve cuando son durables.
+     */
+    private interface ChunkWriter {
+        void write(List<ObjectNode> chunk) throws IOException;
+    }
+
+    /**
+     * Carga masiva de información personal: un objeto JSON por línea (NDJSON), con los
+     * mismos campos que {@code /info_personal}. Ver {@link #ingest}.
+     */
+    @PostMapping(value = "/batch/info_personal", consumes = {NDJSON, MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<?> guardarInfoPersonalBatch(@RequestHeader("x-access-token") String token,
+                                                      InputStream body) {
+        String email = validateToken(token);
+        if (email == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Token inválido"));
+        }
+        return ingest(body, email, (recordEmail, datos) -> {
+            if (datos.isEmpty()) {
+                throw new IllegalArgumentException("Registro vacío");
+            }
+            return personalRecord(recordEmail, datos);
+        }, this::savePersonalChunk);
+    }
+
+    /**
+     * Carga masiva de información financiera: un objeto JSON por línea (NDJSON), con los
+     * mismos campos que {@code /info_financiera}. A diferencia del endpoint individual, un
+     * valor que no es numérico rechaza la línea en vez de tomarse como 0. Como hay un
+     * registro por email, si un email aparece varias veces gana la última línea.
+     */
+    @PostMapping(value = "/batch/info_financiera", consumes = {NDJSON, MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<?> guardarInfoFinancieraBatch(@RequestHeader("x-access-token") String token,
+                                                        InputStream body) {
         String email = validateToken(token);
         if (email == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Token inválido"));
         }
+        return ingest(body, email, (recordEmail, datos) -> {
+            for (String campo : CAMPOS_FINANCIEROS) {
+                requireNumeric(datos, campo);
+            }
+            return financialRecord(recordEmail, fuenteIngreso(datos), gastos(datos));
+        }, this::saveFinancialChunk);
+    }
+
+    /**
+     * Lee el cuerpo línea por línea y valida cada una al llegar; las válidas se guardan en
+     * tramos de {@code pim.batch.chunk-size} registros, cada uno con una sola escritura
+     * durable. Nunca hay más de un tramo en memoria, aparte de los resultados.
+     *
+     * <p>Cada línea puede traer {@code email}; si es distinto del email del token solo se
+     * acepta cuando el token es de una cuenta listada en {@code pim.batch.import-emails}.
+     * La respuesta trae el resultado de cada línea no vacía ({@code guardado} con su id,
+     * {@code rechazado} o {@code error}) y los registros por segundo logrados. Si un tramo
+     * no se puede guardar la carga se detiene ahí y se responde 500 con lo procesado.</p>
+     */
+    private ResponseEntity<?> ingest(InputStream body, String tokenEmail, LineParser parser, ChunkWriter writer) {
+        long start = System.nanoTime();
+        int chunkSize = Math.max(1, batchChunkSize);
+        ArrayNode resultados = mapper.createArrayNode();
+        List<ObjectNode> chunk = new ArrayList<>(chunkSize);
+        List<ObjectNode> chunkResults = new ArrayList<>(chunkSize);
+        int guardados = 0;
+        int rechazados = 0;
+        String error = null;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                ObjectNode resultado = resultados.addObject();
+                resultado.put("linea", lineNumber);
+                try {
+                    Map<String, Object> datos = mapper.readValue(line, DATOS);
+                    String email = batchEmail(tokenEmail, datos.remove("email"));
+                    datos.remove("id");
+                    chunk.add(parser.parse(email, datos));
+                    chunkResults.add(resultado);
+                } catch (JsonProcessingException e) {
+                    resultado.put("estado", "rechazado").put("error", "JSON inválido");
+                    rechazados++;
+                    continue;
+                } catch (IllegalArgumentException e) {
+                    resultado.put("estado", "rechazado").put("error", e.getMessage());
+                    rechazados++;
+                    continue;
+                }
+                if (chunk.size() >= chunkSize) {
+                    guardados += flushChunk(chunk, chunkResults, writer);
+                }
+            }
+            guardados += flushChunk(chunk, chunkResults, writer);
+        } catch (IOException e) {
+            log.error("Error en la carga por lotes email={}", tokenEmail, e);
+            error = e.getMessage();
+            for (ObjectNode resultado : chunkResults) {
+                resultado.put("estado", "error").put("error", "No se pudo guardar el tramo");
+            }
+        }
+
+        double segundos = (System.nanoTime() - start) / 1e9;
+        ObjectNode response = mapper.createObjectNode();
+        response.put("recibidos", resultados.size());
+        response.put("guardados", guardados);
+        response.put("rechazados", rechazados);
+        response.put("segundos", segundos);
+        response.put("registrosPorSegundo", segundos > 0 ? guardados / segundos : 0.0);
+        if (error != null) {
+            response.put("error", "Error al guardar la información: " + error);
+        }
+        response.set("resultados", resultados);
+        log.info("Carga por lotes email={} guardados={} rechazados={} registrosPorSegundo={}",
+                tokenEmail, guardados, rechazados, Math.round(response.get("registrosPorSegundo").asDouble()));
+        return ResponseEntity.status(error == null ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+
+    /**
+     * Guarda el tramo y marca sus líneas como guardadas. Deja las listas vacías; si falla
+     * las deja como están para que quien llama marque esas líneas.
+     */
+    private int flushChunk(List<ObjectNode> chunk, List<ObjectNode> chunkResults, ChunkWriter writer)
+            throws IOException {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        writer.write(chunk);
+        for (int i = 0; i < chunk.size(); i++) {
+            chunkResults.get(i).put("estado", "guardado").put("id", chunk.get(i).path("id").asText());
+        }
+        int saved = chunk.size();
+        chunk.clear();
+        chunkResults.clear();
+        return saved;
+    }
+
+    private void savePersonalChunk(List<ObjectNode> chunk) throws IOException {
+        RecordCollection.awaitDurable(personalInfo.saveAllAsync(chunk));
+        Set<String> emails = new HashSet<>();
+        for (ObjectNode record : chunk) {
+            emails.add(record.get("email").asText());
+        }
+        emails.forEach(revisions::increment);
+    }
 
+    /**
+     * Igual que {@code /info_financiera} pero para todo el tramo: con los locks de todos sus
+     * usuarios tomados, cada registro reutiliza el id del existente y la vista se actualiza.
+     */
+    private void saveFinancialChunk(List<ObjectNode> chunk) throws IOException {
+        // Último registro de cada email en el tramo, en orden de llegada
+        Map<String, ObjectNode> latest = new LinkedHashMap<>();
+        for (ObjectNode registro : chunk) {
+            latest.put(registro.get("email").asText(), registro);
+        }
+        CompletableFuture<Void> commit;
+        List<Lock> locks = financialInfo.locksFor(latest.keySet());
+        locks.forEach(Lock::lock);
         try {
-            ArrayNode infoPersonal = readJsonArray(PERSONAL_INFO_FILE);
-            ArrayNode userInfo = mapper.createArrayNode();
-            
-            for (int i = 0; i < infoPersonal.size(); i++) {
-                if (infoPersonal.get(i).get("email").asText().equals(email)) {
-                    userInfo.add(infoPersonal.get(i));
+            for (ObjectNode registro : chunk) {
+                ObjectNode existente = findLatestFinancial(registro.get("email").asText());
+                if (existente != null) {
+                    registro.put("id", existente.get("id").asText());
+                } else {
+                    // Las líneas repetidas de un email nuevo comparten el id de la última
+                    registro.put("id", latest.get(registro.get("email").asText()).get("id").asText());
                 }
             }
+            commit = financialInfo.saveAllAsync(new ArrayList<>(latest.values()));
+            latest.forEach((email, registro) -> {
+                financialView.update(email, registro);
+                revisions.increment(email);
+            });
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+        awaitFinancialCommit(commit, latest.keySet());
+    }
 
-            return ResponseEntity.ok(userInfo);
+    /**
+     * Espera el commit de registros financieros que ya se publicaron en la vista. Si falla,
+     * la colección ya deshizo el cambio: bajo los locks de los usuarios se descarta su
+     * respuesta materializada (el próximo GET la rearma desde la colección) y se sube la
+     * revisión, para que nadie siga recibiendo el registro rechazado ni su ETag.
+     */
+    private void awaitFinancialCommit(CompletableFuture<Void> commit, Collection<String> emails) throws IOException {
+        try {
+            RecordCollection.awaitDurable(commit);
+        } catch (IOException e) {
+            List<Lock> locks = financialInfo.locksFor(emails);
+            locks.forEach(Lock::lock);
+            try {
+                for (String email : emails) {
+                    financialView.invalidate(email);
+                    revisions.increment(email);
+                }
+            } finally {
+                for (int i = locks.size() - 1; i >= 0; i--) {
+                    locks.get(i).unlock();
+                }
+            }
+            throw e;
+        }
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Error al obtener la información: " + e.getMessage()));
+    /**
+     * Email al que va una línea de la carga por lotes: el del token, salvo que la línea
+     * traiga otro y el token sea de una cuenta de importación.
+     */
+    private String batchEmail(String tokenEmail, Object lineEmail) {
+        if (lineEmail == null) {
+            return tokenEmail;
+        }
+        String email = lineEmail.toString().trim();
+        if (email.equals(tokenEmail)) {
+            return tokenEmail;
+        }
+        String normalizedToken = EmailIndex.normalize(tokenEmail);
+        boolean importer = batchImportEmails.stream()
+                .anyMatch(allowed -> !allowed.isBlank() && EmailIndex.normalize(allowed).equals(normalizedToken));
+        if (!importer) {
+            throw new IllegalArgumentException("El token no permite guardar datos de otro email");
+        }
+        if (email.isEmpty()) {
+            throw new IllegalArgumentException("Email vacío");
+        }
+        return email;
+    }
+
+    /**
+     * Como {@link #parseNumericValue} pero rechaza los valores que no son números.
+     */
+    private static void requireNumeric(Map<String, Object> datos, String campo) {
+        Object value = datos.get(campo);
+        if (value == null || value instanceof Number) {
+            return;
+        }
+        String strValue = value.toString().replace("$", "").replace(",", "").replace(" ", "").trim();
+        if (strValue.isEmpty()) {
+            return;
+        }
+        try {
+            Double.parseDouble(strValue);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor no numérico en " + campo);
         }
     }
 
@@ -0,0 +1,178 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Snapshot binario de una colección, leído con un archivo mapeado en memoria.
+ *
+ * <p>Formato (big-endian):</p>
+ * <pre>
+ * [0]            int magic "PIMS", int versión, int cantidad, int reservado
+ * [16 + 24 * i]  entrada i: long offset, int largo id, int largo email (-1 = sin email),
+ *                int largo JSON, int reservado
+ * [offset]       bytes UTF-8 del id, del email y del JSON del registro
+ * </pre>
+ *
+ * <p>Las entradas tienen tamaño fijo, así que el registro i se ubica sin recorrer el
+ * archivo. Abrir el snapshot solo mapea el archivo: el JSON de cada registro se parsea
+ * cuando alguien lo pide ({@link StoredRecord#node()}).</p>
+ */
+final class BinarySnapshot {
+    private static final int MAGIC = 0x50494D53;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 24;
+
+    private final Path path;
+    private final ObjectMapper mapper;
+    private final MappedByteBuffer buffer;
+    private final int count;
+
+    private BinarySnapshot(Path path, ObjectMapper mapper, MappedByteBuffer buffer, int count) {
+        this.path = path;
+        this.mapper = mapper;
+        this.buffer = buffer;
+        this.count = count;
+    }
+
+    /**
+     * Mapea el snapshot en memoria y valida la cabecera.
+     */
+    static BinarySnapshot open(Path path, ObjectMapper mapper) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot inválido: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Snapshot con formato desconocido: " + path);
+            }
+            int count = buffer.getInt(8);
+            if (count < 0 || HEADER_BYTES + (long) count * ENTRY_BYTES > size) {
+                throw new IOException("Snapshot truncado: " + path);
+            }
+            return new BinarySnapshot(path, mapper, buffer, count);
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Registro {@code slot} con su id y email ya leídos; el JSON queda sin parsear.
+     */
+    StoredRecord record(int slot) {
+        int entry = HEADER_BYTES + slot * ENTRY_BYTES;
+        int offset = (int) buffer.getLong(entry);
+        int idLength = buffer.getInt(entry + 8);
+        int emailLength = buffer.getInt(entry + 12);
+        String id = string(offset, idLength);
+        String email = emailLength < 0 ? null : string(offset + idLength, emailLength);
+        return new StoredRecord(id, email, this, slot);
+    }
+
+    /**
+     * Bytes JSON del registro {@code slot}, tal como se escribieron.
+     */
+    byte[] json(int slot) {
+        int entry = HEADER_BYTES + slot * ENTRY_BYTES;
+        int offset = (int) buffer.getLong(entry);
+        int skip = buffer.getInt(entry + 8) + Math.max(0, buffer.getInt(entry + 12));
+        byte[] json = new byte[buffer.getInt(entry + 16)];
+        buffer.get(offset + skip, json);
+        return json;
+    }
+
+    ObjectNode parse(int slot) {
+        try {
+            JsonNode node = mapper.readTree(json(slot));
+            if (!(node instanceof ObjectNode)) {
+                throw new IOException("Registro " + slot + " no es un objeto en " + path);
+            }
+            return (ObjectNode) node;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String string(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escribe los registros en un temporal, lo fuerza a disco y lo renombra como
+     * {@code target}, que no debe estar mapeado (Windows no permite reemplazar un archivo
+     * mapeado). Los registros que vienen de otro snapshot se copian sin parsearlos.
+     */
+    static void write(Path target, List<StoredRecord> records, ObjectMapper mapper) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        int count = records.size();
+        ByteBuffer index = ByteBuffer.allocate(HEADER_BYTES + count * ENTRY_BYTES);
+        index.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0);
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long offset = index.capacity();
+            channel.position(offset);
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            for (StoredRecord record : records) {
+                byte[] id = record.id().getBytes(StandardCharsets.UTF_8);
+                byte[] email = record.email() == null ? null : record.email().getBytes(StandardCharsets.UTF_8);
+                byte[] json = record.json(mapper);
+                index.putLong(offset).putInt(id.length).putInt(email == null ? -1 : email.length)
+                        .putInt(json.length).putInt(0);
+                out.write(id);
+                if (email != null) {
+                    out.write(email);
+                }
+                out.write(json);
+                offset += id.length + (email == null ? 0 : email.length) + json.length;
+            }
+            out.flush();
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot demasiado grande para mapearse: " + offset + " bytes");
+            }
+            index.flip();
+            long position = 0;
+            while (index.hasRemaining()) {
+                position += channel.write(index, position);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Fuerza a disco la entrada del directorio, para que el renombrado sobreviva a un corte.
+     * Windows no permite abrir un directorio como canal; ahí se omite.
+     */
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Sin soporte en este sistema de archivos
+        }
+    }
+}
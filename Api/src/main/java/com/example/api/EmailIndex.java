@@ -0,0 +1,72 @@
+package com.example.api;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice email -> id de usuario, normalizado (sin espacios y en minúsculas).
+ * Vive en memoria durante toda la vida del proceso y se reconstruye desde la colección de
+ * usuarios al iniciar. {@link #reserve(String, String)} es atómico, así que dos registros
+ * simultáneos con el mismo email no pueden pasar ambos.
+ */
+class EmailIndex {
+    private static final Logger log = LoggerFactory.getLogger(EmailIndex.class);
+
+    private final Map<String, String> idsByEmail = new ConcurrentHashMap<>();
+
+    static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Vacía el índice y lo vuelve a llenar con los usuarios de la colección.
+     * Devuelve el número de entradas cargadas.
+     *
+     * <p>Usuarios registrados antes de normalizar pueden tener emails que solo difieren en
+     * mayúsculas o espacios. En ese caso el email queda para el primero en orden de
+     * inserción y cada choque se informa en el log, para resolverlo a mano.</p>
+     */
+    int rebuild(RecordCollection users) {
+        idsByEmail.clear();
+        users.forEachKey((id, email) -> {
+            if (email != null) {
+                String owner = idsByEmail.putIfAbsent(normalize(email), id);
+                if (owner != null) {
+                    log.warn("Email duplicado al ignorar mayúsculas: {} (usuario {}) choca con el usuario {}, que conserva el login",
+                            email, id, owner);
+                }
+            }
+        });
+        return idsByEmail.size();
+    }
+
+    boolean contains(String email) {
+        return idsByEmail.containsKey(normalize(email));
+    }
+
+    String idFor(String email) {
+        return idsByEmail.get(normalize(email));
+    }
+
+    /**
+     * Reserva el email para el id dado. Devuelve false si ya estaba registrado.
+     */
+    boolean reserve(String email, String id) {
+        return idsByEmail.putIfAbsent(normalize(email), id) == null;
+    }
+
+    /**
+     * Libera una reserva que no llegó a persistirse.
+     */
+    void release(String email, String id) {
+        idsByEmail.remove(normalize(email), id);
+    }
+
+    int size() {
+        return idsByEmail.size();
+    }
+}
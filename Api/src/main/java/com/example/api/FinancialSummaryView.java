@@ -0,0 +1,127 @@
+package com.example.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Vista materializada de {@code /obtener_info_financiera}: por email, la respuesta ya
+ * serializada (en JSON y en CBOR) de su registro financiero más reciente. Un GET devuelve
+ * esos bytes tal cual, sin recorrer el registro ni armar mapas.
+ *
+ * <p>{@code /info_financiera} actualiza la vista bajo el lock del usuario, justo después de
+ * guardar el registro, y si ese cambio no llega a ser durable lo descarta con
+ * {@link #invalidate}. Los usuarios que no se han consultado desde el arranque se
+ * materializan en su primer GET, también bajo el lock, para que una lectura concurrente con
+ * una escritura nunca deje la versión anterior en la vista.</p>
+ */
+class FinancialSummaryView {
+    private static final String[] CATEGORIAS = {
+        "Arriendo/Hipoteca", "Servicios", "Alimentación", "Transporte", "Otros"
+    };
+    private static final String[] CAMPOS_CATEGORIAS = {
+        "arriendoHipo", "services", "alimentacion", "transporte", "otros"
+    };
+    private static final String[] CAMPOS = {
+        "ingreso", "arriendoHipo", "services", "alimentacion", "transporte", "otros", "totalGastos", "disponible"
+    };
+
+    private final ObjectMapper mapper;
+    private final ObjectMapper cborMapper;
+    private final RecordCollection financialInfo;
+    private final Map<String, Rendered> responses = new ConcurrentHashMap<>();
+    private final Rendered empty;
+
+    FinancialSummaryView(ObjectMapper mapper, ObjectMapper cborMapper, RecordCollection financialInfo) {
+        this.mapper = mapper;
+        this.cborMapper = cborMapper;
+        this.financialInfo = financialInfo;
+        this.empty = render(null);
+    }
+
+    /**
+     * Respuesta serializada del email (CBOR si {@code cbor}, si no JSON); la de valores en
+     * cero si no tiene registros.
+     */
+    byte[] get(String email, boolean cbor) {
+        Rendered rendered = rendered(email);
+        return cbor ? rendered.cbor : rendered.json;
+    }
+
+    private Rendered rendered(String email) {
+        Rendered cached = responses.get(email);
+        if (cached != null) {
+            return cached;
+        }
+        Lock userLock = financialInfo.lockFor(email);
+        userLock.lock();
+        try {
+            cached = responses.get(email);
+            if (cached == null) {
+                ObjectNode latest = financialInfo.findLatestByEmail(email);
+                if (latest == null || latest.get("gastos") == null) {
+                    // No se guarda: así la vista solo crece con usuarios que tienen datos
+                    return empty;
+                }
+                cached = render(latest);
+                responses.put(email, cached);
+            }
+            return cached;
+        } finally {
+            userLock.unlock();
+        }
+    }
+
+    /**
+     * Rematerializa el email con su nuevo registro. Se llama con el lock del usuario tomado.
+     */
+    void update(String email, ObjectNode registro) {
+        responses.put(email, render(registro));
+    }
+
+    /**
+     * Descarta la respuesta materializada del email para que el próximo GET la rearme desde
+     * la colección. Se llama con el lock del usuario tomado, cuando un cambio ya publicado
+     * con {@link #update} no llegó a ser durable.
+     */
+    void invalidate(String email) {
+        responses.remove(email);
+    }
+
+    private Rendered render(ObjectNode registro) {
+        ObjectNode gastos = registro != null ? (ObjectNode) registro.get("gastos") : null;
+        ObjectNode response = mapper.createObjectNode();
+        for (String campo : CAMPOS) {
+            response.put(campo, gastos != null ? gastos.path(campo).asDouble(0.0) : 0.0);
+        }
+        response.put("fuenteIngreso", registro != null ? registro.path("fuenteIngreso").asText("No especificado") : "");
+        ArrayNode categorias = response.putArray("categorias");
+        for (String categoria : CATEGORIAS) {
+            categorias.add(categoria);
+        }
+        ArrayNode valores = response.putArray("valores");
+        for (String campo : CAMPOS_CATEGORIAS) {
+            valores.add(gastos != null ? gastos.path(campo).asDouble(0.0) : 0.0);
+        }
+        try {
+            return new Rendered(mapper.writeValueAsBytes(response), cborMapper.writeValueAsBytes(response));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Rendered {
+        final byte[] json;
+        final byte[] cbor;
+
+        Rendered(byte[] json, byte[] cbor) {
+            this.json = json;
+            this.cbor = cbor;
+        }
+    }
+}
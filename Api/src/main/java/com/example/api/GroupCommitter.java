@@ -0,0 +1,143 @@
+package com.example.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit genérico: un hilo junta los elementos que llegan dentro de una ventana corta
+ * ({@code windowMs}, hasta {@code maxBatchSize}) y los entrega juntos a un {@link BatchWriter},
+ * que los hace durables con una sola operación (write + fsync, commit del store, etc.).
+ * El futuro de cada elemento se completa cuando su lote terminó.
+ */
+class GroupCommitter<T> implements Closeable {
+
+    interface BatchWriter<T> {
+        void write(List<T> batch) throws IOException;
+    }
+
+    private final String name;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final BatchWriter<T> writer;
+
+    private final BlockingQueue<Pending<T>> queue = new LinkedBlockingQueue<>();
+    private Thread thread;
+    private volatile boolean running;
+
+    GroupCommitter(String name, long windowMs, int maxBatchSize, BatchWriter<T> writer) {
+        this.name = name;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.writer = writer;
+    }
+
+    synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "pim-commit-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Encola el elemento para el próximo lote. Si {@link #close()} corre a la vez, el
+     * elemento se escribe con el último lote o su futuro falla; nunca queda sin completar.
+     */
+    CompletableFuture<Void> submit(T item) throws IOException {
+        if (!running) {
+            throw new IOException("El group commit de " + name + " está cerrado");
+        }
+        Pending<T> pending = new Pending<>(item);
+        queue.add(pending);
+        // close() pudo vaciar la cola entre el chequeo y el add: si el elemento sigue ahí,
+        // nadie más lo va a sacar. Si ya no está, lo tomó el hilo o failPending()
+        if (!running && queue.remove(pending)) {
+            throw new IOException("El group commit de " + name + " está cerrado");
+        }
+        return pending.durable;
+    }
+
+    /**
+     * Detiene el hilo después de vaciar la cola.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Lo que se haya encolado después de que el hilo terminó no llegó a escribirse
+        failPending(new IOException("El group commit de " + name + " se cerró"));
+    }
+
+    private void run() {
+        List<Pending<T>> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                Pending<T> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Ventana de agrupación: esperar un poco a que lleguen más cambios
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending<T> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            IOException error = new IOException("El group commit de " + name + " fue interrumpido");
+            batch.forEach(pending -> pending.durable.completeExceptionally(error));
+            failPending(error);
+        }
+    }
+
+    private void commit(List<Pending<T>> batch) {
+        List<T> items = new ArrayList<>(batch.size());
+        for (Pending<T> pending : batch) {
+            items.add(pending.item);
+        }
+        try {
+            writer.write(items);
+            batch.forEach(pending -> pending.durable.complete(null));
+        } catch (IOException | RuntimeException e) {
+            batch.forEach(pending -> pending.durable.completeExceptionally(e));
+        }
+    }
+
+    private void failPending(IOException error) {
+        Pending<T> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.durable.completeExceptionally(error);
+        }
+    }
+
+    private static final class Pending<T> {
+        final T item;
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        Pending(T item) {
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Motor de almacenamiento sobre archivos: por cada colección un {@link BinarySnapshot}
+ * {@code <colección>.<generación>.snap} y un {@link RecordJournal} {@code <colección>.journal} con los
+ * cambios posteriores. El snapshot se mapea en memoria al iniciar y sus registros se parsean
+ * a medida que se leen, así que el arranque no depende del tamaño de los datos.
+ *
+ * <p>El arreglo JSON {@code <colección>.json} (el formato original de {@code data/}) sigue
+ * siendo el formato de importación y exportación: si no hay snapshot se importa el
+ * {@code .json} y se escribe el snapshot binario de inmediato; con {@code exportJson} cada
+ * checkpoint también reescribe el {@code .json}.</p>
+ *
+ * <p>{@link #checkpoint} pliega el journal en el snapshot cuando supera
+ * {@code compactionThresholdBytes}. El journal se rota antes de copiar la memoria, así que
+ * todo lo anexado al journal rotado ya está en la copia y lo que llegue después queda en el
+ * journal nuevo. El journal rotado se borra solo después de que el snapshot que lo cubre
+ * quedó en disco; mientras exista no se vuelve a rotar. Los snapshots se escriben en un
+ * temporal que luego se renombra de forma atómica, así que nunca queda un archivo a medio
+ * escribir.</p>
+ *
+ * <p>Cada snapshot es una generación nueva: nunca se renombra sobre el archivo vigente,
+ * que sigue mapeado mientras haya registros sin copiar (y Windows no permite reemplazar ni
+ * borrar un archivo mapeado). Tras escribirla, los registros escritos pasan a apuntar a la
+ * nueva generación ({@link StoredRecord#rebase}) y las anteriores se borran; si alguna
+ * sigue mapeada porque el GC todavía no liberó su mapeo, se reintenta en el siguiente
+ * checkpoint o al iniciar. Al cargar se usa la generación más alta; {@code <colección>.snap}
+ * sin número es la generación 0.</p>
+ */
+class JsonFileStorageEngine implements StorageEngine {
+    private static final Logger log = LoggerFactory.getLogger(JsonFileStorageEngine.class);
+
+    private final Path dataDir;
+    private final ObjectMapper mapper;
+    private final long windowMs;
+    private final int maxBatchSize;
+    private final long compactionThresholdBytes;
+    private final boolean exportJson;
+
+    private final Map<String, RecordJournal> journals = new ConcurrentHashMap<>();
+    // Un solo escritor del snapshot a la vez por archivo
+    private final Map<String, Lock> snapshotLocks = new ConcurrentHashMap<>();
+    // Generación vigente del snapshot de cada colección (sin entrada = todavía no hay)
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+    private volatile LongConsumer batchListener = bytes -> { };
+
+    JsonFileStorageEngine(Path dataDir, ObjectMapper mapper, long windowMs, int maxBatchSize,
+                          long compactionThresholdBytes, boolean exportJson) throws IOException {
+        this.dataDir = dataDir;
+        this.mapper = mapper;
+        this.windowMs = windowMs;
+        this.maxBatchSize = maxBatchSize;
+        this.compactionThresholdBytes = compactionThresholdBytes;
+        this.exportJson = exportJson;
+        Files.createDirectories(dataDir);
+    }
+
+    /**
+     * Archivo de la generación vigente del snapshot de la colección.
+     */
+    Path snapshotPath(String collection) {
+        return snapshotPath(collection, generations.getOrDefault(collection, 0L));
+    }
+
+    private Path snapshotPath(String collection, long generation) {
+        return dataDir.resolve(generation == 0 ? collection + ".snap" : collection + "." + generation + ".snap");
+    }
+
+    Path jsonPath(String collection) {
+        return dataDir.resolve(collection + ".json");
+    }
+
+    /**
+     * Mapea la generación más alta del snapshot binario (o importa el JSON si todavía no hay uno) y reaplica el
+     * journal rotado (si quedó de una compactación interrumpida) y el journal actual. Abre
+     * el journal para nuevas escrituras.
+     */
+    @Override
+    public void loadAll(String collection, Consumer<StoredRecord> sink) throws IOException {
+        RecordJournal journal = new RecordJournal(dataDir.resolve(collection + ".journal"), mapper,
+                windowMs, maxBatchSize, bytes -> batchListener.accept(bytes));
+        Path rotated = journal.rotatedPath();
+        SortedMap<Long, Path> snapshots = snapshotFiles(collection);
+        Path snapshot = snapshots.isEmpty() ? null : snapshots.get(snapshots.lastKey());
+        if (snapshot != null) {
+            generations.put(collection, snapshots.lastKey());
+            deleteOldSnapshots(collection);
+        }
+        boolean imported = snapshot == null && Files.exists(jsonPath(collection));
+        // Un journal rotado indica una compactación que no alcanzó a terminar; en ese caso (y
+        // al importar el JSON) hay que reescribir el snapshot con el resultado combinado
+        boolean rewrite = imported || Files.exists(rotated);
+        Map<String, StoredRecord> merged = rewrite ? new LinkedHashMap<>() : null;
+        // Sin reescritura los registros van directo a la colección, que ya reemplaza por id
+        Consumer<StoredRecord> target = rewrite ? record -> merged.put(record.id(), record) : sink;
+
+        if (snapshot != null) {
+            BinarySnapshot binary = BinarySnapshot.open(snapshot, mapper);
+            for (int i = 0; i < binary.size(); i++) {
+                target.accept(binary.record(i));
+            }
+        } else if (imported) {
+            JsonNode root = mapper.readTree(jsonPath(collection).toFile());
+            if (root != null && root.isArray()) {
+                for (JsonNode node : root) {
+                    if (node instanceof ObjectNode) {
+                        target.accept(StoredRecord.of((ObjectNode) node));
+                    }
+                }
+            }
+        }
+        Consumer<ObjectNode> replay = node -> target.accept(StoredRecord.of(node));
+        RecordJournal.replay(rotated, mapper, replay);
+        long journalLength = RecordJournal.replay(journal.path(), mapper, replay);
+
+        journal.open(journalLength);
+        journals.put(collection, journal);
+        if (rewrite) {
+            merged.values().forEach(sink);
+            writeSnapshot(collection, new ArrayList<>(merged.values()));
+            Files.deleteIfExists(rotated);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> write(String collection, ObjectNode record) throws IOException {
+        return journal(collection).append(record);
+    }
+
+    @Override
+    public CompletableFuture<Void> writeAll(String collection, List<ObjectNode> records) throws IOException {
+        return journal(collection).appendAll(records);
+    }
+
+    @Override
+    public void checkpoint(String collection, Supplier<List<StoredRecord>> current) throws IOException {
+        RecordJournal journal = journal(collection);
+        Path rotated = journal.rotatedPath();
+        // Un journal rotado que sigue ahí es de un checkpoint que falló antes del snapshot:
+        // no se rota encima, se vuelve a intentar cubrirlo con la memoria, que ya lo incluye
+        if (!Files.exists(rotated)) {
+            if (journal.size() < compactionThresholdBytes) {
+                return;
+            }
+            rotated = journal.rotate();
+        }
+        writeSnapshot(collection, current.get());
+        // El snapshot ya está en disco (fsync del archivo y del directorio)
+        Files.deleteIfExists(rotated);
+    }
+
+    @Override
+    public void onBatchWritten(LongConsumer listener) {
+        batchListener = listener;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (RecordJournal journal : journals.values()) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Escribe los registros como una nueva generación del snapshot binario (y el JSON si se
+     * exporta), los apunta a ella y borra las anteriores. Un solo escritor a la vez por
+     * colección.
+     */
+    private void writeSnapshot(String collection, List<StoredRecord> records) throws IOException {
+        Lock lock = snapshotLocks.computeIfAbsent(collection, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            long generation = generations.containsKey(collection) ? generations.get(collection) + 1 : 1;
+            Path path = snapshotPath(collection, generation);
+            BinarySnapshot.write(path, records, mapper);
+            BinarySnapshot written = BinarySnapshot.open(path, mapper);
+            // La entrada i del snapshot nuevo tiene los mismos bytes que records.get(i)
+            for (int i = 0; i < records.size(); i++) {
+                records.get(i).rebase(written, i);
+            }
+            generations.put(collection, generation);
+            deleteOldSnapshots(collection);
+            if (exportJson) {
+                writeJson(jsonPath(collection), records);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Generaciones del snapshot de la colección que hay en disco, por número.
+     */
+    private SortedMap<Long, Path> snapshotFiles(String collection) throws IOException {
+        Pattern name = Pattern.compile(Pattern.quote(collection) + "(?:\\.(\\d+))?\\.snap");
+        SortedMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dataDir, collection + "*.snap")) {
+            for (Path file : stream) {
+                Matcher matcher = name.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(matcher.group(1) == null ? 0L : Long.parseLong(matcher.group(1)), file);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Borra las generaciones anteriores a la vigente. Si el mapeo de alguna sigue vivo y el
+     * sistema no deja borrarla, se reintenta en la próxima llamada.
+     */
+    private void deleteOldSnapshots(String collection) throws IOException {
+        long current = generations.get(collection);
+        for (Path old : snapshotFiles(collection).headMap(current).values()) {
+            try {
+                Files.deleteIfExists(old);
+            } catch (IOException e) {
+                log.debug("No se pudo borrar el snapshot anterior {}; se reintenta más tarde", old, e);
+            }
+        }
+    }
+
+    /**
+     * Exporta los registros como arreglo JSON: temporal, fsync y renombrado atómico.
+     */
+    private void writeJson(Path target, List<StoredRecord> records) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        ArrayNode array = mapper.createArrayNode();
+        records.forEach(record -> array.add(record.node()));
+        try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+            mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, array);
+            out.getFD().sync();
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private RecordJournal journal(String collection) throws IOException {
+        RecordJournal journal = journals.get(collection);
+        if (journal == null) {
+            throw new IOException("La colección " + collection + " no fue cargada");
+        }
+        return journal;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Decorador que mide otro {@link StorageEngine} con Micrometer, con la colección como tag:
+ * {@code pim.storage.load}, {@code pim.storage.write} (desde que se entrega el cambio hasta
+ * que es durable, incluida la espera del group commit), {@code pim.storage.write.chunk} (lo
+ * mismo para un lote de registros de la ingesta por lotes), {@code pim.storage.checkpoint} y
+ * {@code pim.storage.batch.bytes} (bytes de cada lote escrito en disco).
+ */
+class MeteredStorageEngine implements StorageEngine {
+    private final StorageEngine delegate;
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    MeteredStorageEngine(StorageEngine delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+        DistributionSummary batchBytes = DistributionSummary.builder("pim.storage.batch.bytes")
+                .description("Bytes escritos por cada lote durable (un fsync o commit)")
+                .baseUnit("bytes")
+                .register(registry);
+        delegate.onBatchWritten(batchBytes::record);
+    }
+
+    @Override
+    public void loadAll(String collection, Consumer<StoredRecord> sink) throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.loadAll(collection, sink);
+        } finally {
+            timer("pim.storage.load", collection).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> write(String collection, ObjectNode record) throws IOException {
+        long start = System.nanoTime();
+        CompletableFuture<Void> commit = delegate.write(collection, record);
+        // Se devuelve el futuro original para no cambiar la excepción que ve el llamador
+        Timer timer = timer("pim.storage.write", collection);
+        commit.whenComplete((ok, error) -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        return commit;
+    }
+
+    @Override
+    public CompletableFuture<Void> writeAll(String collection, List<ObjectNode> records) throws IOException {
+        long start = System.nanoTime();
+        CompletableFuture<Void> commit = delegate.writeAll(collection, records);
+        Timer timer = timer("pim.storage.write.chunk", collection);
+        commit.whenComplete((ok, error) -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        return commit;
+    }
+
+    @Override
+    public void checkpoint(String collection, Supplier<List<StoredRecord>> current) throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.checkpoint(collection, current);
+        } finally {
+            timer("pim.storage.checkpoint", collection).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void onBatchWritten(LongConsumer listener) {
+        delegate.onBatchWritten(listener);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private Timer timer(String name, String collection) {
+        return timers.computeIfAbsent(name + ':' + collection, k -> Timer.builder(name)
+                .tag("collection", collection)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+}
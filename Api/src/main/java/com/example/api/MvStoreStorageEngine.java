@@ -0,0 +1,162 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Motor de almacenamiento embebido sobre H2 MVStore: un archivo único con árboles B por
+ * páginas, sin servidor externo. Cada escritura actualiza solo las páginas tocadas en lugar
+ * de reescribir la colección.
+ *
+ * <p>Por colección hay dos mapas: {@code <colección>.records} (secuencia -> JSON), que
+ * conserva el orden de inserción, e {@code <colección>.ids} (id -> secuencia), para que
+ * reemplazar un registro conserve su posición. La durabilidad usa el mismo
+ * {@link GroupCommitter} que el journal: un commit + sync del store por lote.</p>
+ *
+ * <p>Los cambios entran a los mapas antes del commit. Si el commit falla, se devuelven los
+ * valores anteriores antes de completar el futuro con el error, para que un commit
+ * posterior (o el autocommit del store) no persista un cambio que la colección ya deshizo.</p>
+ */
+class MvStoreStorageEngine implements StorageEngine {
+    private final MVStore store;
+    private final ObjectMapper mapper;
+    private final GroupCommitter<String> committer;
+    private final Map<String, MvCollection> collections = new ConcurrentHashMap<>();
+    private volatile LongConsumer batchListener = bytes -> { };
+
+    MvStoreStorageEngine(Path file, ObjectMapper mapper, long windowMs, int maxBatchSize) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.mapper = mapper;
+        this.store = new MVStore.Builder().fileName(file.toString()).open();
+        // MVStore no expone los bytes escritos: se informa cuánto creció el archivo con el
+        // lote (0 si el commit reutilizó páginas libres), que es una cota inferior
+        this.committer = new GroupCommitter<>("mvstore", windowMs, maxBatchSize, batch -> {
+            long before = store.getFileStore().size();
+            store.commit();
+            store.sync();
+            batchListener.accept(Math.max(0, store.getFileStore().size() - before));
+        });
+        committer.start();
+    }
+
+    @Override
+    public void loadAll(String collection, Consumer<StoredRecord> sink) throws IOException {
+        for (String json : collection(collection).records.values()) {
+            JsonNode node = mapper.readTree(json);
+            if (node instanceof ObjectNode) {
+                sink.accept(StoredRecord.of((ObjectNode) node));
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> write(String collection, ObjectNode record) throws IOException {
+        return writeAll(collection, List.of(record));
+    }
+
+    /**
+     * Todos los registros entran al store antes de encolar un solo commit.
+     */
+    @Override
+    public CompletableFuture<Void> writeAll(String collection, List<ObjectNode> records) throws IOException {
+        MvCollection c = collection(collection);
+        List<Runnable> undos = new ArrayList<>(records.size());
+        CompletableFuture<Void> commit;
+        try {
+            for (ObjectNode record : records) {
+                undos.add(put(c, record));
+            }
+            commit = committer.submit(collection);
+        } catch (IOException | RuntimeException e) {
+            undo(undos);
+            throw e;
+        }
+        return commit.whenComplete((ok, error) -> {
+            if (error != null) {
+                undo(undos);
+            }
+        });
+    }
+
+    /**
+     * Escribe el registro en los mapas y devuelve cómo volver al valor anterior. Deshacer
+     * solo toca las entradas que siguen teniendo lo que escribió este cambio.
+     */
+    private Runnable put(MvCollection c, ObjectNode record) throws IOException {
+        String id = record.path("id").asText();
+        Long existing = c.ids.get(id);
+        long seq = existing != null ? existing : c.nextSeq.getAndIncrement();
+        if (existing == null) {
+            c.ids.put(id, seq);
+        }
+        String json = mapper.writeValueAsString(record);
+        String previous = c.records.put(seq, json);
+        return () -> {
+            if (previous != null) {
+                c.records.replace(seq, json, previous);
+            } else if (c.records.remove(seq, json) && existing == null) {
+                c.ids.remove(id, seq);
+            }
+        };
+    }
+
+    private static void undo(List<Runnable> undos) {
+        for (int i = undos.size() - 1; i >= 0; i--) {
+            undos.get(i).run();
+        }
+    }
+
+    /**
+     * MVStore reutiliza sus propias páginas; no hay journal que compactar.
+     */
+    @Override
+    public void checkpoint(String collection, Supplier<List<StoredRecord>> current) {
+    }
+
+    @Override
+    public void onBatchWritten(LongConsumer listener) {
+        batchListener = listener;
+    }
+
+    @Override
+    public void close() {
+        committer.close();
+        store.close();
+    }
+
+    private MvCollection collection(String name) {
+        return collections.computeIfAbsent(name, n -> new MvCollection(
+                store.openMap(n + ".records"), store.openMap(n + ".ids")));
+    }
+
+    private static final class MvCollection {
+        final MVMap<Long, String> records;
+        final MVMap<String, Long> ids;
+        final AtomicLong nextSeq;
+
+        MvCollection(MVMap<Long, String> records, MVMap<String, Long> ids) {
+            this.records = records;
+            this.ids = ids;
+            Long last = records.lastKey();
+            this.nextSeq = new AtomicLong(last == null ? 0 : last + 1);
+        }
+    }
+}
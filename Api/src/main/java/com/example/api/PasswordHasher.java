@@ -0,0 +1,92 @@
+package com.example.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta BCrypt en un pool propio y acotado, fuera de los hilos de Tomcat.
+ * BCrypt es lento a propósito; con el pool limitado, una ráfaga de logins solo ocupa
+ * {@code threads} núcleos y el resto de endpoints sigue respondiendo. Si la cola está llena
+ * (o la espera supera {@code timeoutMs}) se lanza {@link RejectedExecutionException} para
+ * que el controlador responda 503.
+ *
+ * <p>Métricas: {@code pim.bcrypt} (tiempo de cada hash dentro del pool, tag
+ * {@code operation}), {@code pim.bcrypt.queue} y {@code pim.bcrypt.rejected}.</p>
+ */
+class PasswordHasher {
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    PasswordHasher(int strength, int threads, int queueCapacity, long timeoutMs, MeterRegistry registry) {
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.timeoutMs = timeoutMs;
+        this.encodeTimer = Timer.builder("pim.bcrypt").tag("operation", "encode").register(registry);
+        this.matchesTimer = Timer.builder("pim.bcrypt").tag("operation", "matches").register(registry);
+        this.rejected = Counter.builder("pim.bcrypt.rejected")
+                .description("Hashes rechazados por cola llena o tiempo de espera agotado")
+                .register(registry);
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "pim-bcrypt-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("pim.bcrypt.queue", this, PasswordHasher::queueSize)
+                .description("Hashes esperando un hilo del pool")
+                .register(registry);
+    }
+
+    String encode(String rawPassword) {
+        return await(() -> encodeTimer.recordCallable(() -> encoder.encode(rawPassword)));
+    }
+
+    boolean matches(String rawPassword, String encodedPassword) {
+        return await(() -> matchesTimer.recordCallable(() -> encoder.matches(rawPassword, encodedPassword)));
+    }
+
+    int queueSize() {
+        return executor.getQueue().size();
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T await(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new RejectedExecutionException("BCrypt no respondió en " + timeoutMs + " ms");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrumpido esperando BCrypt");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Colección de registros JSON mantenida en memoria.
+ * Se carga una sola vez desde su {@link StorageEngine} y mantiene un índice hash por id y,
+ * por cada email, su historial ordenado (posición de inserción -> registro), de modo que
+ * leer el historial de un usuario, o una página después de un cursor, cuesta según ese
+ * historial y no según el total de registros. Los índices solo necesitan id y email; el
+ * JSON de cada registro se parsea la primera vez que se lee (ver {@link StoredRecord}).
+ *
+ * <p>Cada escritura actualiza la memoria y luego se entrega al motor, que la hace durable
+ * (journal con group commit, commit del store, etc.). Las escrituras se serializan por
+ * usuario con un {@link StripedLock}, así que dos cambios del mismo registro llegan al motor
+ * en el mismo orden en que se aplicaron en memoria.</p>
+ *
+ * <p>Si el motor no logra hacer durable un cambio, se deshace en memoria (vuelve el
+ * registro anterior o se quita el nuevo) antes de completar el futuro con el error, así
+ * que lo que se lee nunca incluye un cambio fallido.</p>
+ */
+class RecordCollection {
+    private final String name;
+    private final StorageEngine storage;
+    private final StripedLock userLocks;
+
+    // LinkedHashMap conserva el orden de inserción del archivo original
+    private final Map<String, StoredRecord> byId = new LinkedHashMap<>();
+    // Posición de inserción de cada id; reemplazar un registro lo mueve al final
+    private final Map<String, Long> positions = new HashMap<>();
+    private final Map<String, NavigableMap<Long, StoredRecord>> byEmail = new HashMap<>();
+    private long nextPosition;
+    // Último cambio de cada id que el motor todavía no confirmó
+    private final Map<String, Undo> pending = new HashMap<>();
+    // Futuros de los cambios entregados al motor que todavía no se cerraron
+    private final Set<CompletableFuture<Void>> inFlight = ConcurrentHashMap.newKeySet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    RecordCollection(String name, StorageEngine storage) {
+        this(name, storage, new StripedLock(16));
+    }
+
+    RecordCollection(String name, StorageEngine storage, StripedLock userLocks) {
+        this.name = name;
+        this.storage = storage;
+        this.userLocks = userLocks;
+    }
+
+    /**
+     * Lock del usuario. Quien haga lectura-modificación-escritura sobre los registros de un
+     * email debe tomarlo alrededor de la lectura y del {@link #save(ObjectNode)}.
+     */
+    Lock lockFor(String email) {
+        return userLocks.get(email);
+    }
+
+    /**
+     * Locks de varios usuarios, en el orden en que hay que tomarlos (ver
+     * {@link StripedLock#getAll}). Se sueltan en orden inverso.
+     */
+    List<Lock> locksFor(Collection<String> emails) {
+        return userLocks.getAll(emails);
+    }
+
+    /**
+     * Carga los registros guardados en el motor y construye los índices.
+     * Se llama una vez al iniciar.
+     */
+    void load() throws IOException {
+        lock.writeLock().lock();
+        try {
+            byId.clear();
+            positions.clear();
+            byEmail.clear();
+            pending.clear();
+            nextPosition = 0;
+            storage.loadAll(name, this::replace);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Optional<ObjectNode> findById(String id) {
+        lock.readLock().lock();
+        try {
+            StoredRecord record = byId.get(id);
+            return record == null ? Optional.empty() : Optional.of(record.node());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve los registros del email en orden de inserción.
+     */
+    List<ObjectNode> findByEmail(String email) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<Long, StoredRecord> history = byEmail.get(email);
+            if (history == null) {
+                return Collections.emptyList();
+            }
+            List<ObjectNode> result = new ArrayList<>(history.size());
+            for (StoredRecord record : history.values()) {
+                result.add(record.node());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hasta {@code limit} registros del email en orden de inserción, empezando después del
+     * registro {@code afterId} (desde el primero si es null).
+     *
+     * @throws IllegalArgumentException si {@code afterId} no es un registro del email
+     */
+    List<ObjectNode> findByEmail(String email, String afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<Long, StoredRecord> history = byEmail.getOrDefault(email, Collections.emptyNavigableMap());
+            if (afterId != null) {
+                Long position = positions.get(afterId);
+                if (position == null || !history.containsKey(position)) {
+                    throw new IllegalArgumentException("Cursor desconocido: " + afterId);
+                }
+                history = history.tailMap(position, false);
+            }
+            // size() de un tailMap recorre la vista, así que no se usa para dimensionar
+            List<ObjectNode> result = new ArrayList<>(Math.min(limit, 128));
+            for (StoredRecord record : history.values()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(record.node());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve el registro más reciente del email, o null si no tiene ninguno.
+     */
+    ObjectNode findLatestByEmail(String email) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<Long, StoredRecord> history = byEmail.get(email);
+            if (history == null || history.isEmpty()) {
+                return null;
+            }
+            return history.lastEntry().getValue().node();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inserta o reemplaza (por id) un registro y espera a que quede en disco.
+     */
+    void save(ObjectNode record) throws IOException {
+        awaitDurable(saveAsync(record));
+    }
+
+    /**
+     * Inserta o reemplaza (por id) un registro y lo entrega al motor. El futuro se completa
+     * cuando el cambio es durable; si falla, el cambio ya se deshizo en memoria. Quien tenga
+     * tomado el lock del usuario puede soltarlo antes de esperar el futuro.
+     */
+    CompletableFuture<Void> saveAsync(ObjectNode record) throws IOException {
+        // El lock del usuario mantiene el orden memoria/motor para un mismo registro
+        Lock userLock = lockFor(record.path("email").asText(""));
+        userLock.lock();
+        try {
+            List<Undo> undos;
+            lock.writeLock().lock();
+            try {
+                undos = List.of(apply(StoredRecord.of(record)));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return durable(undos, () -> storage.write(name, record));
+        } finally {
+            userLock.unlock();
+        }
+    }
+
+    /**
+     * Inserta o reemplaza (por id) varios registros y los entrega al motor como un solo
+     * lote ({@link StorageEngine#writeAll}). Toma los locks de todos los usuarios
+     * involucrados, así que el orden memoria/motor se mantiene igual que en
+     * {@link #saveAsync(ObjectNode)}.
+     */
+    CompletableFuture<Void> saveAllAsync(List<ObjectNode> records) throws IOException {
+        Set<String> emails = new HashSet<>();
+        for (ObjectNode record : records) {
+            emails.add(record.path("email").asText(""));
+        }
+        List<Lock> locks = locksFor(emails);
+        locks.forEach(Lock::lock);
+        try {
+            List<Undo> undos = new ArrayList<>(records.size());
+            lock.writeLock().lock();
+            try {
+                for (ObjectNode record : records) {
+                    undos.add(apply(StoredRecord.of(record)));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return durable(undos, () -> storage.writeAll(name, records));
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
+
+    /**
+     * Espera a que un cambio devuelto por {@link #saveAsync(ObjectNode)} sea durable.
+     */
+    static void awaitDurable(CompletableFuture<Void> commit) throws IOException {
+        try {
+            commit.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpido esperando el commit");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    /**
+     * Recorre todos los registros bajo el lock de lectura.
+     */
+    void forEach(Consumer<ObjectNode> action) {
+        lock.readLock().lock();
+        try {
+            byId.values().forEach(record -> action.accept(record.node()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recorre id y email de todos los registros sin parsear su JSON.
+     */
+    void forEachKey(BiConsumer<String, String> action) {
+        lock.readLock().lock();
+        try {
+            byId.values().forEach(record -> action.accept(record.id(), record.email()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mantenimiento periódico del motor para esta colección (por ejemplo, compactar el
+     * journal). Le pasa una copia de la memoria con solo cambios ya confirmados.
+     */
+    void compact() throws IOException {
+        storage.checkpoint(name, this::snapshot);
+    }
+
+    /**
+     * Copia del estado confirmado. Primero espera a que se cierren los cambios que ya
+     * estaban entregados al motor (los que pueden estar en el journal que se está
+     * compactando); de los que lleguen después se toma el registro anterior al primer
+     * cambio sin confirmar, así que la copia nunca incluye un cambio que luego se deshaga.
+     */
+    private List<StoredRecord> snapshot() {
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0]))
+                .handle((ok, error) -> null)
+                .join();
+        lock.readLock().lock();
+        try {
+            List<StoredRecord> copy = new ArrayList<>(byId.size());
+            for (StoredRecord record : byId.values()) {
+                Undo undo = pending.get(record.id());
+                if (undo == null) {
+                    copy.add(record);
+                    continue;
+                }
+                while (undo.earlier != null) {
+                    undo = undo.earlier;
+                }
+                if (undo.previous != null) {
+                    copy.add(undo.previous);
+                }
+            }
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Aplica un cambio en memoria y recuerda cómo deshacerlo. Se llama con el lock de
+     * escritura tomado.
+     */
+    private Undo apply(StoredRecord record) {
+        String id = record.id();
+        Undo undo = new Undo(record, byId.get(id), positions.get(id));
+        Undo earlier = pending.put(id, undo);
+        if (earlier != null) {
+            earlier.later = undo;
+            undo.earlier = earlier;
+        }
+        replace(record);
+        return undo;
+    }
+
+    /**
+     * Entrega los cambios ya aplicados al motor. El futuro devuelto se completa después de
+     * deshacerlos si el motor falla, tanto al entregarlos como al hacerlos durables.
+     */
+    private CompletableFuture<Void> durable(List<Undo> undos, StorageWrite write) throws IOException {
+        CompletableFuture<Void> commit;
+        try {
+            commit = write.submit();
+        } catch (IOException | RuntimeException e) {
+            settle(undos, e);
+            throw e;
+        }
+        CompletableFuture<Void> settled = commit.whenComplete((ok, error) -> settle(undos, error));
+        inFlight.add(settled);
+        settled.whenComplete((ok, error) -> inFlight.remove(settled));
+        return settled;
+    }
+
+    /**
+     * Cierra los cambios en el orden en que se aplicaron; con {@code error} los deshace. El
+     * motor confirma en orden los cambios de un mismo registro, así que un cambio anterior
+     * siempre se cierra antes que uno posterior del mismo id.
+     */
+    private void settle(List<Undo> undos, Throwable error) {
+        lock.writeLock().lock();
+        try {
+            for (Undo undo : undos) {
+                String id = undo.applied.id();
+                if (undo.later != null) {
+                    undo.later.earlier = null;
+                }
+                if (error != null) {
+                    if (undo.later != null) {
+                        // Un cambio posterior lo reemplazó: si ese también falla, vuelve al
+                        // estado anterior a este y no a este
+                        undo.later.previous = undo.previous;
+                        undo.later.previousPosition = undo.previousPosition;
+                    } else {
+                        restore(undo);
+                    }
+                }
+                if (pending.get(id) == undo) {
+                    pending.remove(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void restore(Undo undo) {
+        String id = undo.applied.id();
+        unindexEmail(undo.applied);
+        StoredRecord previous = undo.previous;
+        if (previous == null) {
+            byId.remove(id);
+            positions.remove(id);
+            return;
+        }
+        byId.put(id, previous);
+        positions.put(id, undo.previousPosition);
+        if (previous.email() != null) {
+            byEmail.computeIfAbsent(previous.email(), k -> new TreeMap<>()).put(undo.previousPosition, previous);
+        }
+    }
+
+    private void replace(StoredRecord record) {
+        StoredRecord previous = byId.get(record.id());
+        if (previous != null) {
+            unindexEmail(previous);
+        }
+        index(record);
+    }
+
+    private void index(StoredRecord record) {
+        String id = record.id();
+        byId.put(id, record);
+        long position = nextPosition++;
+        positions.put(id, position);
+        String email = record.email();
+        if (email != null) {
+            // replace() ya quitó el registro anterior de su historial
+            byEmail.computeIfAbsent(email, k -> new TreeMap<>()).put(position, record);
+        }
+    }
+
+    private void unindexEmail(StoredRecord record) {
+        String email = record.email();
+        Long position = positions.get(record.id());
+        if (email == null || position == null) {
+            return;
+        }
+        NavigableMap<Long, StoredRecord> history = byEmail.get(email);
+        if (history != null) {
+            history.remove(position);
+            if (history.isEmpty()) {
+                byEmail.remove(email);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface StorageWrite {
+        CompletableFuture<Void> submit() throws IOException;
+    }
+
+    /**
+     * Lo necesario para deshacer un cambio: el registro y la posición que tenía el id antes
+     * (null si era nuevo) y los cambios sin confirmar del mismo id anterior y posterior a
+     * este, si los hay.
+     */
+    private static final class Undo {
+        final StoredRecord applied;
+        StoredRecord previous;
+        Long previousPosition;
+        Undo earlier;
+        Undo later;
+
+        Undo(StoredRecord applied, StoredRecord previous, Long previousPosition) {
+            this.applied = applied;
+            this.previous = previous;
+            this.previousPosition = previousPosition;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Journal de solo-anexado (write-ahead log) para una colección, con group commit.
+ * Cada cambio es una línea JSON con el registro completo. Los cambios que llegan dentro de
+ * la ventana del {@link GroupCommitter} se escriben con un solo write + fsync; el futuro de
+ * cada cambio se completa cuando su lote ya está en disco.
+ *
+ * <p>Un corte durante un write puede dejar la última línea a medias: {@link #replay} la
+ * ignora y {@link #open(long)} la recorta antes de anexar, para que el próximo cambio no
+ * quede pegado al fragmento. Cualquier otra línea ilegible es un error.</p>
+ *
+ * <p>El canal se protege con un {@link ReentrantLock} y no con {@code synchronized}: un hilo
+ * virtual que espera un write o un fsync dentro de un bloque {@code synchronized} deja
+ * bloqueado también a su hilo portador.</p>
+ */
+class RecordJournal implements Closeable {
+    private final Path path;
+    private final ObjectMapper mapper;
+    private final GroupCommitter<ByteBuffer> committer;
+    private final LongConsumer onBatchWritten;
+
+    private final ReentrantLock channelLock = new ReentrantLock();
+    private FileChannel channel;
+
+    /**
+     * {@code onBatchWritten} recibe los bytes de cada lote una vez sincronizado.
+     */
+    RecordJournal(Path path, ObjectMapper mapper, long windowMs, int maxBatchSize, LongConsumer onBatchWritten) {
+        this.path = path;
+        this.mapper = mapper;
+        this.onBatchWritten = onBatchWritten;
+        this.committer = new GroupCommitter<>(path.getFileName().toString(), windowMs, maxBatchSize, this::writeBatch);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Ruta donde queda el journal rotado mientras se compacta.
+     */
+    Path rotatedPath() {
+        return path.resolveSibling(path.getFileName() + ".old");
+    }
+
+    /**
+     * Abre el journal para anexar, recortado a {@code length} bytes (lo que devolvió
+     * {@link #replay} para este archivo), así que una última línea incompleta se descarta.
+     */
+    void open(long length) throws IOException {
+        channelLock.lock();
+        try {
+            if (Files.exists(path) && Files.size(path) > length) {
+                try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    file.truncate(length);
+                    file.force(true);
+                }
+            }
+            openChannel();
+        } finally {
+            channelLock.unlock();
+        }
+        committer.start();
+    }
+
+    /**
+     * Encola el registro para el próximo lote. El futuro se completa cuando el lote
+     * quedó escrito y sincronizado en disco.
+     */
+    CompletableFuture<Void> append(JsonNode record) throws IOException {
+        byte[] json = mapper.writeValueAsBytes(record);
+        ByteBuffer line = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n');
+        line.flip();
+        return committer.submit(line);
+    }
+
+    /**
+     * Encola varios registros como una sola entrada: siempre quedan en el mismo lote, con
+     * un solo write + fsync.
+     */
+    CompletableFuture<Void> appendAll(List<? extends JsonNode> records) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(records.size() * 256);
+        for (JsonNode record : records) {
+            mapper.writeValue(lines, record);
+            lines.write('\n');
+        }
+        return committer.submit(ByteBuffer.wrap(lines.toByteArray()));
+    }
+
+    long size() throws IOException {
+        channelLock.lock();
+        try {
+            return channel.size();
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    /**
+     * Cierra el journal actual, lo renombra a {@link #rotatedPath()} y abre uno vacío.
+     * Los lotes escritos después de la rotación quedan en el journal nuevo.
+     *
+     * @throws FileAlreadyExistsException si todavía hay un journal rotado: tiene cambios
+     *         que ningún snapshot cubre y no se puede pisar
+     */
+    Path rotate() throws IOException {
+        channelLock.lock();
+        try {
+            Path rotated = rotatedPath();
+            if (Files.exists(rotated)) {
+                throw new FileAlreadyExistsException(rotated.toString(), null,
+                        "El journal rotado todavía no está cubierto por un snapshot");
+            }
+            channel.close();
+            try {
+                Files.move(path, rotated);
+            } finally {
+                openChannel();
+            }
+            return rotated;
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    /**
+     * Vacía la cola del group commit y cierra el archivo.
+     */
+    @Override
+    public void close() throws IOException {
+        committer.close();
+        channelLock.lock();
+        try {
+            if (channel != null && channel.isOpen()) {
+                channel.close();
+            }
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void writeBatch(List<ByteBuffer> lines) throws IOException {
+        ByteBuffer[] buffers = lines.toArray(new ByteBuffer[0]);
+        ByteBuffer last = buffers[buffers.length - 1];
+        long bytes = 0;
+        channelLock.lock();
+        try {
+            while (last.hasRemaining()) {
+                bytes += channel.write(buffers);
+            }
+            channel.force(false);
+        } finally {
+            channelLock.unlock();
+        }
+        onBatchWritten.accept(bytes);
+    }
+
+    /**
+     * Reaplica las líneas completas (terminadas en {@code '\n'}) de un journal y devuelve
+     * cuántos bytes ocupan. Lo que sigue a la última línea completa es una escritura
+     * interrumpida y se descarta.
+     *
+     * @throws IOException si una línea completa no es JSON válido: el journal está dañado y
+     *         saltarla perdería en silencio los cambios que siguen
+     */
+    static long replay(Path file, ObjectMapper mapper, Consumer<ObjectNode> consumer) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long complete = 0;
+        long lineNumber = 0;
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        line.write(buffer, start, i - start);
+                        applyLine(file, ++lineNumber, line.toByteArray(), mapper, consumer);
+                        complete += line.size() + 1;
+                        line.reset();
+                        start = i + 1;
+                    }
+                }
+                line.write(buffer, start, read - start);
+            }
+        }
+        return complete;
+    }
+
+    private static void applyLine(Path file, long lineNumber, byte[] line, ObjectMapper mapper,
+                                  Consumer<ObjectNode> consumer) throws IOException {
+        if (new String(line, StandardCharsets.UTF_8).isBlank()) {
+            return;
+        }
+        JsonNode node;
+        try {
+            node = mapper.readTree(line);
+        } catch (IOException e) {
+            throw new IOException("Línea " + lineNumber + " dañada en el journal " + file, e);
+        }
+        if (node instanceof ObjectNode) {
+            consumer.accept((ObjectNode) node);
+        }
+    }
+}
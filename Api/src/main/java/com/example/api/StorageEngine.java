@@ -0,0 +1,67 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Persistencia de las colecciones de la API (usuarios, información personal y financiera).
+ * Los registros son objetos JSON identificados por su campo {@code id}; las lecturas se
+ * sirven desde {@link RecordCollection}, así que el motor solo carga al iniciar y escribe.
+ *
+ * <p>Implementaciones: {@link JsonFileStorageEngine} (archivos JSON + journal) y
+ * {@link MvStoreStorageEngine} (almacén embebido clave-valor por páginas). Se elige con
+ * {@code pim.storage.engine}.</p>
+ */
+interface StorageEngine extends Closeable {
+    String USERS = "users";
+    String PERSONAL_INFO = "personal_info";
+    String FINANCIAL_INFO = "financial_info";
+
+    /**
+     * Entrega todos los registros guardados de la colección, en orden de inserción.
+     * El JSON de cada registro puede quedar sin parsear hasta que se lea.
+     */
+    void loadAll(String collection, Consumer<StoredRecord> sink) throws IOException;
+
+    /**
+     * Inserta o reemplaza (por id) un registro. El futuro se completa cuando el cambio es
+     * durable. Dos escrituras del mismo registro deben llegar en orden (el llamador las
+     * serializa con el lock del usuario).
+     */
+    CompletableFuture<Void> write(String collection, ObjectNode record) throws IOException;
+
+    /**
+     * Inserta o reemplaza varios registros como un solo cambio: el futuro se completa cuando
+     * todos son durables. Los motores que pueden los escriben en un único lote (un write +
+     * fsync, un commit); por defecto se entregan uno por uno.
+     */
+    default CompletableFuture<Void> writeAll(String collection, List<ObjectNode> records) throws IOException {
+        CompletableFuture<?>[] commits = new CompletableFuture<?>[records.size()];
+        for (int i = 0; i < commits.length; i++) {
+            commits[i] = write(collection, records.get(i));
+        }
+        return CompletableFuture.allOf(commits);
+    }
+
+    /**
+     * Mantenimiento periódico de la colección (por ejemplo, compactar). {@code current}
+     * devuelve una copia del estado en memoria con solo cambios confirmados; espera a los
+     * que estaban en curso al llamarlo, así que el motor no debe llamarlo desde su hilo de
+     * commit.
+     */
+    void checkpoint(String collection, Supplier<List<StoredRecord>> current) throws IOException;
+
+    /**
+     * Registra quién recibe los bytes que escribe cada lote durable (un fsync o commit), para
+     * las métricas. Se llama antes de {@link #loadAll}.
+     */
+    default void onBatchWritten(LongConsumer listener) {
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+
+/**
+ * Registro de una colección tal como lo guarda {@link RecordCollection}: el id y el email
+ * (lo que necesitan los índices) y el JSON, que puede seguir sin parsear dentro de un
+ * {@link BinarySnapshot} hasta que alguien lo lea.
+ */
+final class StoredRecord {
+    private final String id;
+    private final String email;
+    // Snapshot y entrada de donde salen los bytes (null si solo está en memoria)
+    private volatile Location location;
+    private volatile ObjectNode node;
+
+    StoredRecord(String id, String email, BinarySnapshot source, int slot) {
+        this.id = id;
+        this.email = email;
+        this.location = source == null ? null : new Location(source, slot);
+    }
+
+    private StoredRecord(ObjectNode node) {
+        this(node.path("id").asText(), node.path("email").asText(null), null, -1);
+        this.node = node;
+    }
+
+    static StoredRecord of(ObjectNode node) {
+        return new StoredRecord(node);
+    }
+
+    String id() {
+        return id;
+    }
+
+    String email() {
+        return email;
+    }
+
+    /**
+     * El registro como JSON. Si viene de un snapshot se parsea la primera vez; dos hilos
+     * pueden parsearlo a la vez, pero ambos obtienen el mismo contenido.
+     */
+    ObjectNode node() {
+        ObjectNode current = node;
+        if (current == null) {
+            Location l = location;
+            current = l.source.parse(l.slot);
+            node = current;
+        }
+        return current;
+    }
+
+    /**
+     * Bytes JSON para escribir un snapshot; si el registro viene de uno, se copian tal cual.
+     */
+    byte[] json(ObjectMapper mapper) throws IOException {
+        Location l = location;
+        return l != null ? l.source.json(l.slot) : mapper.writeValueAsBytes(node);
+    }
+
+    /**
+     * Apunta el registro a la entrada {@code slot} de un snapshot recién escrito con su
+     * mismo contenido, para que deje de retener el mapeo del snapshot anterior.
+     */
+    void rebase(BinarySnapshot source, int slot) {
+        location = new Location(source, slot);
+    }
+
+    private static final class Location {
+        final BinarySnapshot source;
+        final int slot;
+
+        Location(BinarySnapshot source, int slot) {
+            this.source = source;
+            this.slot = slot;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.api;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Conjunto fijo de locks repartidos por hash de la clave (el email del usuario).
+ * Las operaciones de un mismo usuario quedan serializadas y las de usuarios distintos
+ * casi nunca comparten lock, así que pueden correr en paralelo.
+ */
+class StripedLock {
+    private final ReentrantLock[] stripes;
+
+    StripedLock(int minStripes) {
+        int size = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    Lock get(String key) {
+        return stripes[index(key)];
+    }
+
+    /**
+     * Los locks (sin repetir) de varias claves, siempre en el mismo orden. Quien necesite
+     * más de uno debe tomarlos en este orden, así dos hilos nunca se bloquean entre sí.
+     */
+    List<Lock> getAll(Collection<String> keys) {
+        BitSet used = new BitSet(stripes.length);
+        for (String key : keys) {
+            used.set(index(key));
+        }
+        List<Lock> locks = new ArrayList<>(used.cardinality());
+        for (int i = used.nextSetBit(0); i >= 0; i = used.nextSetBit(i + 1)) {
+            locks.add(stripes[i]);
+        }
+        return locks;
+    }
+
+    private int index(String key) {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= (h >>> 16);
+        return h & (stripes.length - 1);
+    }
+
+    int size() {
+        return stripes.length;
+    }
+}
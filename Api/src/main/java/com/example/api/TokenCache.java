@@ -0,0 +1,99 @@
+package com.example.api;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché acotada de tokens JWT ya verificados: token -> subject (email).
+ * Cada entrada vence en el mismo instante que el claim {@code exp} del token, así que un
+ * acierto nunca devuelve un token que el parser ya rechazaría por expirado.
+ */
+class TokenCache {
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    TokenCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Devuelve el subject cacheado o null si no está o ya venció.
+     */
+    String get(String token, long nowMillis) {
+        Entry entry = entries.get(token);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAtMillis <= nowMillis) {
+            entries.remove(token, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.subject;
+    }
+
+    void put(String token, String subject, long expiresAtMillis, long nowMillis) {
+        if (subject == null || expiresAtMillis <= nowMillis) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict(nowMillis);
+        }
+        entries.put(token, new Entry(subject, expiresAtMillis));
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Primero descarta las entradas vencidas; si aún está llena, libera un 10% de la
+     * capacidad quitando entradas en el orden de iteración del mapa, para no tener que
+     * recorrerlo en cada inserción.
+     */
+    private void evict(long nowMillis) {
+        entries.values().removeIf(entry -> entry.expiresAtMillis <= nowMillis);
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TokenCache[size=%d, hits=%d, misses=%d, hitRate=%.2f]",
+                size(), hits(), misses(), hitRate());
+    }
+
+    private static final class Entry {
+        final String subject;
+        final long expiresAtMillis;
+
+        Entry(String subject, long expiresAtMillis) {
+            this.subject = subject;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
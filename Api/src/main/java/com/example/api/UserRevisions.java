@@ -0,0 +1,56 @@
+package com.example.api;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Revisión de los datos de cada usuario, para los ETag de los endpoints {@code obtener_*}.
+ * Cada escritura del usuario la incrementa. El ETag lleva además una época aleatoria del
+ * proceso, así que un ETag emitido antes de reiniciar nunca coincide con uno nuevo aunque
+ * el contador haya vuelto a empezar.
+ *
+ * <p>Orden: quien escribe incrementa después de que el cambio es visible en memoria, y
+ * quien lee toma la revisión antes de leer los datos. Así un ETag puede quedar más viejo
+ * que el cuerpo que acompaña (el siguiente pedido simplemente no coincide), pero nunca
+ * más nuevo.</p>
+ */
+class UserRevisions {
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final Map<String, AtomicLong> revisions = new ConcurrentHashMap<>();
+
+    void increment(String email) {
+        revisions.computeIfAbsent(email, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * ETag débil ({@code W/"..."}) para {@code resource} en la revisión actual del usuario.
+     * Tiene que ser débil: Tomcat no comprime con gzip una respuesta con ETag fuerte.
+     */
+    String etag(String resource, String email) {
+        AtomicLong revision = revisions.get(email);
+        return "W/\"" + resource + "-" + epoch + "-" + (revision == null ? 0 : revision.get()) + "\"";
+    }
+
+    /**
+     * Si el header {@code If-None-Match} incluye el ETag (comparación débil, como pide el
+     * estándar para este header) o es {@code *}.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaque(tag).equals(opaque(etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
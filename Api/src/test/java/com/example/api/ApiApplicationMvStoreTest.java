@@ -0,0 +1,31 @@
+package com.example.api;
+
+import org.junit.jupiter.api.AfterAll;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Las mismas pruebas de integración de {@link ApiApplicationTest}, con el motor MVStore
+ */
+@SpringBootTest(
+  webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+  properties = {
+    "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration",
+    "pim.storage.engine=mvstore",
+    "pim.storage.mvstore.file=data/test-pim.mv.db"
+  }
+)
+class ApiApplicationMvStoreTest extends ApiApplicationTest {
+
+    @AfterAll
+    static void cleanupMvStore() {
+        try {
+            Files.deleteIfExists(Paths.get("data/test-pim.mv.db"));
+        } catch (IOException e) {
+            System.err.println("Error al limpiar archivos de prueba: " + e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -9,12 +11,22 @@ import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.http.*;
 import org.springframework.test.context.TestPropertySource;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -57,6 +69,15 @@ class ApiApplicationTest {
             Files.deleteIfExists(Paths.get(DATA_DIR + "/users.json"));
             Files.deleteIfExists(Paths.get(DATA_DIR + "/personal_info.json"));
             Files.deleteIfExists(Paths.get(DATA_DIR + "/financial_info.json"));
+            Files.deleteIfExists(Paths.get(DATA_DIR + "/users.journal"));
+            Files.deleteIfExists(Paths.get(DATA_DIR + "/personal_info.journal"));
+            Files.deleteIfExists(Paths.get(DATA_DIR + "/financial_info.journal"));
+            // Todas las generaciones de snapshot (users.snap, users.1.snap, ...)
+            try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(Paths.get(DATA_DIR), "*.snap")) {
+                for (Path snapshot : snapshots) {
+                    Files.deleteIfExists(snapshot);
+                }
+            }
         } catch (IOException e) {
             System.err.println("Error al limpiar archivos de prueba: " + e.getMessage());
         }
@@ -172,6 +193,45 @@ class ApiApplicationTest {
         testToken = (String) response.getBody().get("token");
     }
 
+    @Test
+    @Order(6)
+    @DisplayName("06 - Registro con el mismo email en otras mayúsculas debe fallar")
+    void testRegistroEmailDuplicadoMayusculas() {
+        Map<String, String> credentials = new HashMap<>();
+        credentials.put("email", " " + TEST_EMAIL.toUpperCase() + " ");
+        credentials.put("password", "otherpassword");
+
+        ResponseEntity<Map> response = restTemplate.postForEntity(
+            getBaseUrl() + "/registro",
+            credentials,
+            Map.class
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatusCode().value());
+        assertNotNull(response.getBody());
+        assertEquals("El email ya está registrado", response.getBody().get("error"));
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("07 - Login con el email en otras mayúsculas y con espacios")
+    void testLoginEmailNormalizado() {
+        Map<String, String> credentials = new HashMap<>();
+        credentials.put("email", "  Test@Example.COM ");
+        credentials.put("password", TEST_PASSWORD);
+
+        ResponseEntity<Map> response = restTemplate.postForEntity(
+            getBaseUrl() + "/login",
+            credentials,
+            Map.class
+        );
+
+        assertEquals(HttpStatus.OK.value(), response.getStatusCode().value());
+        assertNotNull(response.getBody());
+        assertEquals("Login exitoso", response.getBody().get("mensaje"));
+        assertNotNull(response.getBody().get("token"));
+    }
+
     @Test
     @Order(8)
     @DisplayName("08 - Login sin credenciales debe fallar")
@@ -234,7 +294,34 @@ class ApiApplicationTest {
         assertTrue(response.getStatusCode().is4xxClientError());
     }
 
-   
+
+    @Test
+    @Order(11)
+    @DisplayName("11 - Un token alterado se rechaza aunque el original esté en caché")
+    void testTokenAlteradoDespuesDeAciertoEnCache() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-access-token", testToken);
+        ResponseEntity<String> valido = restTemplate.exchange(
+            getBaseUrl() + "/obtener_info_personal",
+            HttpMethod.GET,
+            new HttpEntity<>(headers),
+            String.class
+        );
+        assertEquals(HttpStatus.OK.value(), valido.getStatusCode().value());
+
+        // Misma cabecera y payload, otra firma (el primer carácter de la firma es todo datos)
+        int firma = testToken.lastIndexOf('.') + 1;
+        char original = testToken.charAt(firma);
+        String alterado = testToken.substring(0, firma) + (original == 'A' ? 'B' : 'A') + testToken.substring(firma + 1);
+        headers.set("x-access-token", alterado);
+        ResponseEntity<String> rechazado = restTemplate.exchange(
+            getBaseUrl() + "/obtener_info_personal",
+            HttpMethod.GET,
+            new HttpEntity<>(headers),
+            String.class
+        );
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), rechazado.getStatusCode().value());
+    }
 
     // =====================================================
     // PRUEBAS DE INFORMACIÓN FINANCIERA
@@ -365,13 +452,43 @@ class ApiApplicationTest {
         assertNotNull(response.getBody());
     }
 
+    @Test
+    @Order(17)
+    @DisplayName("17 - GET condicional con If-None-Match devuelve 304 hasta que hay una escritura")
+    void testObtenerInfoFinancieraCondicional() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-access-token", testToken);
+
+        ResponseEntity<String> primera = restTemplate.exchange(
+            getBaseUrl() + "/obtener_info_financiera", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        String etag = primera.getHeaders().getETag();
+        assertNotNull(etag);
+
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<String> sinCambios = restTemplate.exchange(
+            getBaseUrl() + "/obtener_info_financiera", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), sinCambios.getStatusCode().value());
+        assertNull(sinCambios.getBody());
+
+        HttpHeaders escritura = new HttpHeaders();
+        escritura.set("x-access-token", testToken);
+        Map<String, Object> datos = new HashMap<>();
+        datos.put("ingreso", 1000000.0);
+        restTemplate.postForEntity(getBaseUrl() + "/info_financiera", new HttpEntity<>(datos, escritura), Map.class);
+
+        ResponseEntity<String> modificada = restTemplate.exchange(
+            getBaseUrl() + "/obtener_info_financiera", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.OK.value(), modificada.getStatusCode().value());
+        assertNotEquals(etag, modificada.getHeaders().getETag());
+    }
+
     // =====================================================
     // PRUEBAS DE OBTENER INFORMACIÓN PERSONAL
     // =====================================================
 
     @Test
-    @Order(17)
-    @DisplayName("17 - Obtener información personal con token válido")
+    @Order(18)
+    @DisplayName("18 - Obtener información personal con token válido")
     void testObtenerInfoPersonalExitoso() {
         HttpHeaders headers = new HttpHeaders();
         headers.set("x-access-token", testToken);
@@ -389,8 +506,95 @@ class ApiApplicationTest {
     }
 
     @Test
-    @Order(18)
-    @DisplayName("18 - Obtener información personal sin token debe fallar")
+    @Order(19)
+    @DisplayName("19 - Obtener información personal paginada con limit y after")
+    void testObtenerInfoPersonalPaginado() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-access-token", testToken);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> datos = new HashMap<>();
+            datos.put("nombre", "Página " + i);
+            restTemplate.postForEntity(getBaseUrl() + "/info_personal", new HttpEntity<>(datos, headers), Map.class);
+        }
+
+        ResponseEntity<String> todo = restTemplate.exchange(
+            getBaseUrl() + "/obtener_info_personal", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        int total = objectMapper.readTree(todo.getBody()).size();
+        assertTrue(total >= 3);
+
+        // Recorrer todas las páginas de a 2 debe devolver el mismo total
+        int vistos = 0;
+        String cursor = null;
+        do {
+            String url = getBaseUrl() + "/obtener_info_personal?limit=2" + (cursor != null ? "&after=" + cursor : "");
+            ResponseEntity<String> pagina = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+            assertEquals(HttpStatus.OK.value(), pagina.getStatusCode().value());
+            int size = objectMapper.readTree(pagina.getBody()).size();
+            assertTrue(size <= 2);
+            vistos += size;
+            cursor = pagina.getHeaders().getFirst("X-Next-Cursor");
+        } while (cursor != null);
+        assertEquals(total, vistos);
+
+        ResponseEntity<Map> invalido = restTemplate.exchange(
+            getBaseUrl() + "/obtener_info_personal?limit=2&after=no-existe", HttpMethod.GET,
+            new HttpEntity<>(headers), Map.class);
+        assertEquals(HttpStatus.BAD_REQUEST.value(), invalido.getStatusCode().value());
+    }
+
+    @Test
+    @Order(20)
+    @DisplayName("20 - Historial personal comprimido con gzip y en CBOR según los headers")
+    void testObtenerInfoPersonalGzipYCbor() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-access-token", testToken);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        for (int i = 0; i < 20; i++) {
+            Map<String, Object> datos = new HashMap<>();
+            datos.put("nombre", "Registro para comprimir " + i);
+            datos.put("direccion", "Calle larga número " + i + " de la ciudad de prueba");
+            restTemplate.postForEntity(getBaseUrl() + "/info_personal", new HttpEntity<>(datos, headers), Map.class);
+        }
+
+        // Cliente sin descompresión automática, para ver la respuesta tal como viaja
+        HttpResponse<byte[]> gzip = HttpClient.newHttpClient().send(
+            HttpRequest.newBuilder(URI.create(getBaseUrl() + "/obtener_info_personal"))
+                .header("x-access-token", testToken)
+                .header("Accept-Encoding", "gzip")
+                .build(),
+            HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(HttpStatus.OK.value(), gzip.statusCode());
+        assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElse(null));
+        // Tomcat solo comprime respuestas con ETag débil
+        assertTrue(gzip.headers().firstValue("ETag").orElse("").startsWith("W/"));
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+            assertTrue(objectMapper.readTree(in).size() >= 20);
+        }
+
+        headers.setAccept(List.of(MediaType.APPLICATION_CBOR));
+        ResponseEntity<byte[]> cbor = restTemplate.exchange(
+            getBaseUrl() + "/obtener_info_personal", HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+        assertEquals(HttpStatus.OK.value(), cbor.getStatusCode().value());
+        assertTrue(MediaType.APPLICATION_CBOR.isCompatibleWith(cbor.getHeaders().getContentType()));
+        assertTrue(new CBORMapper().readTree(cbor.getBody()).size() >= 20);
+
+        // Con la misma calidad gana JSON: es el Accept que manda RestTemplate por defecto
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR));
+        ResponseEntity<String> empate = restTemplate.exchange(
+            getBaseUrl() + "/obtener_info_personal", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(empate.getHeaders().getContentType()));
+        assertTrue(objectMapper.readTree(empate.getBody()).size() >= 20);
+
+        headers.set(HttpHeaders.ACCEPT, "application/json;q=0.5, application/cbor");
+        ResponseEntity<byte[]> preferido = restTemplate.exchange(
+            getBaseUrl() + "/obtener_info_personal", HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+        assertTrue(MediaType.APPLICATION_CBOR.isCompatibleWith(preferido.getHeaders().getContentType()));
+    }
+
+    @Test
+    @Order(21)
+    @DisplayName("21 - Obtener información personal sin token debe fallar")
     void testObtenerInfoPersonalSinToken() {
         ResponseEntity<Map> response = restTemplate.getForEntity(
             getBaseUrl() + "/obtener_info_personal",
@@ -400,13 +604,43 @@ class ApiApplicationTest {
         assertTrue(response.getStatusCode().is4xxClientError());
     }
 
+    @Test
+    @Order(22)
+    @DisplayName("22 - Dashboard devuelve historial y resumen financiero en una respuesta")
+    void testDashboard() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-access-token", testToken);
+
+        ResponseEntity<String> response = restTemplate.exchange(
+            getBaseUrl() + "/dashboard", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.OK.value(), response.getStatusCode().value());
+        JsonNode body = objectMapper.readTree(response.getBody());
+
+        ResponseEntity<String> personal = restTemplate.exchange(
+            getBaseUrl() + "/obtener_info_personal", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        ResponseEntity<String> financiera = restTemplate.exchange(
+            getBaseUrl() + "/obtener_info_financiera", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(objectMapper.readTree(personal.getBody()), body.get("personas"));
+        assertEquals(body.get("personas").size(), body.get("total_registros").asInt());
+        assertEquals(objectMapper.readTree(financiera.getBody()), body.get("financiera"));
+        assertEquals(5, body.get("financiera").get("valores").size());
+
+        headers.setIfNoneMatch(response.getHeaders().getETag());
+        ResponseEntity<String> sinCambios = restTemplate.exchange(
+            getBaseUrl() + "/dashboard", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), sinCambios.getStatusCode().value());
+
+        ResponseEntity<Map> sinToken = restTemplate.getForEntity(getBaseUrl() + "/dashboard", Map.class);
+        assertTrue(sinToken.getStatusCode().is4xxClientError());
+    }
+
     // =====================================================
     // PRUEBAS DE CÁLCULOS FINANCIEROS
     // =====================================================
 
     @Test
-    @Order(19)
-    @DisplayName("19 - Verificar cálculos financieros correctos")
+    @Order(23)
+    @DisplayName("23 - Verificar cálculos financieros correctos")
     void testCalculosFinancierosCorrectos() {
         Map<String, Object> datos = new HashMap<>();
         datos.put("ingreso", 10000000.0);
@@ -439,8 +673,8 @@ class ApiApplicationTest {
     }
 
     @Test
-    @Order(20)
-    @DisplayName("20 - Actualizar información financiera existente")
+    @Order(24)
+    @DisplayName("24 - Actualizar información financiera existente")
     void testActualizarInfoFinanciera() {
         // Primera inserción
         Map<String, Object> datos1 = new HashMap<>();
@@ -484,4 +718,53 @@ class ApiApplicationTest {
         Map<String, Object> gastos = (Map<String, Object>) response.getBody().get("gastos");
         assertEquals(5000000.0, ((Number) gastos.get("ingreso")).doubleValue(), 0.01);
     }
-}
\ No newline at end of file
+
+    // =====================================================
+    // PRUEBAS DE CARGA POR LOTES
+    // =====================================================
+
+    @Test
+    @Order(25)
+    @DisplayName("25 - Carga por lotes NDJSON informa el resultado de cada línea")
+    void testCargaPorLotes() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-access-token", testToken);
+        headers.setContentType(MediaType.valueOf("application/x-ndjson"));
+
+        StringBuilder personal = new StringBuilder();
+        for (int i = 0; i < 1200; i++) {
+            personal.append("{\"nombre\": \"Migrado ").append(i).append("\"}\n");
+        }
+        personal.append("no es json\n");
+        personal.append("{\"nombre\": \"Ajeno\", \"email\": \"otro@example.com\"}\n");
+
+        ResponseEntity<String> response = restTemplate.postForEntity(
+            getBaseUrl() + "/batch/info_personal", new HttpEntity<>(personal.toString(), headers), String.class);
+        assertEquals(HttpStatus.OK.value(), response.getStatusCode().value());
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertEquals(1202, body.get("recibidos").asInt());
+        assertEquals(1200, body.get("guardados").asInt());
+        assertEquals(2, body.get("rechazados").asInt());
+        assertTrue(body.get("registrosPorSegundo").asDouble() > 0);
+        assertEquals("guardado", body.get("resultados").get(0).get("estado").asText());
+        assertEquals(1201, body.get("resultados").get(1200).get("linea").asInt());
+        assertEquals("rechazado", body.get("resultados").get(1201).get("estado").asText());
+
+        String financiera = "{\"ingreso\": 100, \"otros\": 10}\n"
+            + "{\"ingreso\": \"mucho\"}\n"
+            + "{\"ingreso\": 3000000, \"otros\": \"1,000\"}\n";
+        ResponseEntity<String> fin = restTemplate.postForEntity(
+            getBaseUrl() + "/batch/info_financiera", new HttpEntity<>(financiera, headers), String.class);
+        JsonNode finBody = objectMapper.readTree(fin.getBody());
+        assertEquals(2, finBody.get("guardados").asInt());
+        assertEquals("rechazado", finBody.get("resultados").get(1).get("estado").asText());
+
+        // Gana la última línea del email
+        HttpHeaders get = new HttpHeaders();
+        get.set("x-access-token", testToken);
+        ResponseEntity<Map> resumen = restTemplate.exchange(
+            getBaseUrl() + "/obtener_info_financiera", HttpMethod.GET, new HttpEntity<>(get), Map.class);
+        assertEquals(3000000.0, ((Number) resumen.getBody().get("ingreso")).doubleValue(), 0.01);
+        assertEquals(2999000.0, ((Number) resumen.getBody().get("disponible")).doubleValue(), 0.01);
+    }
+}
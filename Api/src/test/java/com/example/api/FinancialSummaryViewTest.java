@@ -0,0 +1,126 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas unitarias de la vista materializada de /obtener_info_financiera
+ */
+class FinancialSummaryViewTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectMapper cborMapper = new CBORMapper();
+
+    @TempDir
+    Path dir;
+
+    private ObjectNode registro(String email, double ingreso, double otros) {
+        ObjectNode gastos = mapper.createObjectNode();
+        gastos.put("ingreso", ingreso);
+        gastos.put("otros", otros);
+        gastos.put("totalGastos", otros);
+        gastos.put("disponible", ingreso - otros);
+        ObjectNode node = mapper.createObjectNode();
+        node.put("id", email);
+        node.put("email", email);
+        node.put("fuenteIngreso", "Salario");
+        node.set("gastos", gastos);
+        return node;
+    }
+
+    @Test
+    @DisplayName("Materializa en el primer GET y se actualiza con cada escritura")
+    void testMaterializaYActualiza() throws IOException {
+        StorageEngine storage = new JsonFileStorageEngine(dir, mapper, 1, 64, Long.MAX_VALUE, false);
+        RecordCollection financialInfo = new RecordCollection("financial_info", storage);
+        financialInfo.load();
+        financialInfo.save(registro("a@example.com", 1000, 200));
+        FinancialSummaryView view = new FinancialSummaryView(mapper, cborMapper, financialInfo);
+
+        JsonNode inicial = mapper.readTree(view.get("a@example.com", false));
+        assertEquals(1000, inicial.get("ingreso").asDouble(), 0.01);
+        assertEquals(800, inicial.get("disponible").asDouble(), 0.01);
+        assertEquals("Salario", inicial.get("fuenteIngreso").asText());
+        assertEquals(5, inicial.get("categorias").size());
+        assertEquals(200, inicial.get("valores").get(4).asDouble(), 0.01);
+        // Sin cambios se devuelven los mismos bytes
+        assertSame(view.get("a@example.com", false), view.get("a@example.com", false));
+
+        ObjectNode nuevo = registro("a@example.com", 2000, 500);
+        financialInfo.save(nuevo);
+        view.update("a@example.com", nuevo);
+        assertEquals(1500, mapper.readTree(view.get("a@example.com", false)).get("disponible").asDouble(), 0.01);
+        // La versión CBOR tiene el mismo contenido
+        assertEquals(mapper.readTree(view.get("a@example.com", false)),
+                cborMapper.readTree(view.get("a@example.com", true)));
+
+        JsonNode vacio = mapper.readTree(view.get("b@example.com", false));
+        assertEquals(0, vacio.get("ingreso").asDouble(), 0.01);
+        assertEquals("", vacio.get("fuenteIngreso").asText());
+        storage.close();
+    }
+
+    @Test
+    @DisplayName("Un cambio que no llega a ser durable no queda en la vista")
+    void testDescartaCambioRechazado() throws IOException {
+        FailingStorage storage = new FailingStorage();
+        RecordCollection financialInfo = new RecordCollection("financial_info", storage);
+        financialInfo.load();
+        financialInfo.save(registro("a@example.com", 1000, 200));
+        FinancialSummaryView view = new FinancialSummaryView(mapper, cborMapper, financialInfo);
+        assertEquals(800, mapper.readTree(view.get("a@example.com", false)).get("disponible").asDouble(), 0.01);
+
+        // Igual que /info_financiera: se publica en la vista antes de esperar el commit
+        storage.failing = true;
+        ObjectNode rechazado = registro("a@example.com", 5000, 100);
+        CompletableFuture<Void> commit = financialInfo.saveAsync(rechazado);
+        view.update("a@example.com", rechazado);
+        assertThrows(IOException.class, () -> RecordCollection.awaitDurable(commit));
+        view.invalidate("a@example.com");
+
+        JsonNode actual = mapper.readTree(view.get("a@example.com", false));
+        assertEquals(1000, actual.get("ingreso").asDouble(), 0.01);
+        assertEquals(800, actual.get("disponible").asDouble(), 0.01);
+        assertEquals(actual, cborMapper.readTree(view.get("a@example.com", true)));
+    }
+
+    /**
+     * Motor en memoria cuyas escrituras fallan mientras {@code failing} esté activo.
+     */
+    private static final class FailingStorage implements StorageEngine {
+        volatile boolean failing;
+
+        @Override
+        public void loadAll(String collection, Consumer<StoredRecord> sink) {
+        }
+
+        @Override
+        public CompletableFuture<Void> write(String collection, ObjectNode record) {
+            return failing
+                    ? CompletableFuture.failedFuture(new IOException("Disco lleno"))
+                    : CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void checkpoint(String collection, Supplier<List<StoredRecord>> current) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.api;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El endpoint de Prometheus (puerto de administración) expone las métricas de los handlers,
+ * del almacenamiento, de BCrypt y de la caché de JWT. {@code @SpringBootTest} desactiva la
+ * exportación de métricas; {@code @AutoConfigureObservability} la vuelve a activar
+ */
+@AutoConfigureObservability
+@SpringBootTest(
+  webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+  properties = {
+    "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration",
+    "pim.storage.engine=mvstore",
+    "pim.storage.mvstore.file=data/test-metrics.mv.db"
+  }
+)
+class MetricsEndpointTest {
+
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @AfterAll
+    static void cleanup() {
+        try {
+            Files.deleteIfExists(Paths.get("data/test-metrics.mv.db"));
+        } catch (IOException e) {
+            System.err.println("Error al limpiar archivos de prueba: " + e.getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("Las métricas de PIM aparecen en /actuator/prometheus")
+    void testPrometheusExponeMetricas() {
+        String baseUrl = "http://localhost:" + port;
+        Map<String, String> credentials = Map.of(
+            "email", "metricas-" + UUID.randomUUID() + "@example.com",
+            "password", "password123"
+        );
+        restTemplate.postForEntity(baseUrl + "/registro", credentials, Map.class);
+        ResponseEntity<Map> login = restTemplate.postForEntity(baseUrl + "/login", credentials, Map.class);
+        String token = (String) login.getBody().get("token");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-access-token", token);
+        restTemplate.exchange(baseUrl + "/obtener_info_financiera", HttpMethod.GET,
+            new HttpEntity<>(headers), Map.class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity(
+            "http://localhost:" + managementPort + "/actuator/prometheus", String.class);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatusCode().value());
+        String body = response.getBody();
+        assertNotNull(body);
+        assertTrue(body.contains("http_server_requests_seconds_count{"), "Timers por handler");
+        assertTrue(body.contains("uri=\"/login\""), "Timer del handler /login");
+        assertTrue(body.contains("pim_storage_write_seconds_count{"), "Latencia de escritura");
+        assertTrue(body.contains("pim_storage_read_seconds_count{"), "Latencia de lectura");
+        assertTrue(body.contains("pim_storage_batch_bytes_sum"), "Bytes por lote");
+        assertTrue(body.contains("pim_bcrypt_seconds_count{"), "Tiempo de BCrypt");
+        assertTrue(body.contains("pim_jwt_validation_seconds_count{"), "Validación de JWT");
+        assertTrue(body.contains("pim_jwt_cache_hit_ratio"), "Tasa de aciertos de la caché de JWT");
+    }
+}
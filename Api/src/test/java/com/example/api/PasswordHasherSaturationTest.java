@@ -0,0 +1,99 @@
+package com.example.api;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Con el pool de BCrypt saturado (un hilo, un lugar en la cola y un costo alto) los
+ * registros que no entran responden 503 con {@code Retry-After} en lugar de esperar.
+ */
+@SpringBootTest(
+  webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+  properties = {
+    "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration",
+    "pim.storage.engine=mvstore",
+    "pim.storage.mvstore.file=data/test-bcrypt.mv.db",
+    "pim.security.bcrypt.strength=12",
+    "pim.security.bcrypt.threads=1",
+    "pim.security.bcrypt.queue-capacity=1",
+    "pim.security.bcrypt.timeout-ms=30000",
+    "pim.security.bcrypt.retry-after-seconds=7"
+  }
+)
+class PasswordHasherSaturationTest {
+
+    private static final int REQUESTS = 8;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @AfterAll
+    static void cleanup() {
+        try {
+            Files.deleteIfExists(Paths.get("data/test-bcrypt.mv.db"));
+        } catch (IOException e) {
+            System.err.println("Error al limpiar archivos de prueba: " + e.getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("Los registros que no entran al pool responden 503 con Retry-After")
+    void testPoolSaturado() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(REQUESTS);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<ResponseEntity<Map>>> futures = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            Map<String, String> credentials = Map.of(
+                    "email", "saturado" + i + "@example.com", "password", "password123");
+            futures.add(pool.submit(() -> {
+                salida.await();
+                return restTemplate.postForEntity("http://localhost:" + port + "/registro", credentials, Map.class);
+            }));
+        }
+        salida.countDown();
+
+        int aceptados = 0;
+        int rechazados = 0;
+        for (Future<ResponseEntity<Map>> future : futures) {
+            ResponseEntity<Map> response = future.get();
+            if (response.getStatusCode().value() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                rechazados++;
+                assertEquals("7", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+                assertNotNull(response.getBody());
+                assertNotNull(response.getBody().get("error"));
+            } else {
+                assertEquals(HttpStatus.OK.value(), response.getStatusCode().value());
+                aceptados++;
+            }
+        }
+        pool.shutdown();
+
+        // Un hash en curso y uno en cola: el resto de la ráfaga no entra
+        assertTrue(aceptados >= 1, "Al menos un registro debe completarse");
+        assertTrue(rechazados >= 1, "Con el pool lleno algún registro debe recibir 503");
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas unitarias de la colección en memoria sobre el motor de archivos JSON + journal
+ */
+class RecordCollectionTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    private StorageEngine storage;
+
+    private RecordCollection openCollection(long compactionThresholdBytes) throws IOException {
+        storage = new JsonFileStorageEngine(dir, mapper, 1, 64, compactionThresholdBytes, false);
+        RecordCollection collection = new RecordCollection("info", storage);
+        collection.load();
+        return collection;
+    }
+
+    private RecordCollection openCollection() throws IOException {
+        return openCollection(Long.MAX_VALUE);
+    }
+
+    private Path snapshotPath() {
+        return ((JsonFileStorageEngine) storage).snapshotPath("info");
+    }
+
+    private ObjectNode record(String id, String email, double ingreso) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("id", id);
+        node.put("email", email);
+        node.put("ingreso", ingreso);
+        return node;
+    }
+
+    @Test
+    @DisplayName("Los registros del journal se recuperan al recargar")
+    void testReplayJournal() throws IOException {
+        RecordCollection collection = openCollection();
+        collection.save(record("1", "a@example.com", 100));
+        collection.save(record("2", "b@example.com", 200));
+        collection.save(record("1", "a@example.com", 150));
+        storage.close();
+
+        RecordCollection reloaded = openCollection();
+        assertEquals(2, reloaded.size());
+        assertEquals(150, reloaded.findLatestByEmail("a@example.com").get("ingreso").asDouble(), 0.01);
+        assertEquals(1, reloaded.findByEmail("a@example.com").size());
+        storage.close();
+    }
+
+    @Test
+    @DisplayName("Una última línea cortada se recorta y no se lleva los cambios siguientes")
+    void testTornJournalTail() throws Exception {
+        RecordCollection collection = openCollection();
+        collection.save(record("1", "a@example.com", 100));
+        storage.close();
+        // Corte a mitad de un write: el registro 2 quedó sin terminar y sin '\n'
+        Files.write(dir.resolve("info.journal"), "{\"id\":\"2\",\"email\":\"b@exa".getBytes(),
+                StandardOpenOption.APPEND);
+
+        RecordCollection reopened = openCollection();
+        assertEquals(1, reopened.size());
+        reopened.saveAsync(record("3", "c@example.com", 300)).get();
+        reopened.saveAsync(record("4", "d@example.com", 400)).get();
+        storage.close();
+
+        RecordCollection reloaded = openCollection();
+        assertEquals(3, reloaded.size());
+        assertTrue(reloaded.findById("3").isPresent());
+        assertTrue(reloaded.findById("4").isPresent());
+        assertTrue(reloaded.findById("2").isEmpty());
+        storage.close();
+    }
+
+    @Test
+    @DisplayName("Una línea dañada en medio del journal es un error y no corta la recarga en silencio")
+    void testCorruptJournalLine() throws IOException {
+        Files.writeString(dir.resolve("info.journal"), mapper.writeValueAsString(record("1", "a@example.com", 1))
+                + "\nbasura\n" + mapper.writeValueAsString(record("2", "b@example.com", 2)) + "\n");
+
+        IOException error = assertThrows(IOException.class, this::openCollection);
+        assertTrue(error.getMessage().contains("Línea 2"), error.getMessage());
+        storage.close();
+    }
+
+    @Test
+    @DisplayName("No se rota encima de un journal rotado que ningún snapshot cubre")
+    void testRotateKeepsPendingRotatedJournal() throws IOException {
+        RecordJournal journal = new RecordJournal(dir.resolve("info.journal"), mapper, 1, 64, bytes -> { });
+        journal.open(0);
+        RecordCollection.awaitDurable(journal.append(record("1", "a@example.com", 1)));
+        Path rotated = journal.rotate();
+        RecordCollection.awaitDurable(journal.append(record("2", "b@example.com", 2)));
+
+        assertThrows(FileAlreadyExistsException.class, journal::rotate);
+        List<String> ids = new ArrayList<>();
+        RecordJournal.replay(rotated, mapper, node -> ids.add(node.get("id").asText()));
+        assertEquals(List.of("1"), ids);
+        // El journal actual sigue abierto después del rechazo
+        RecordCollection.awaitDurable(journal.append(record("3", "c@example.com", 3)));
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("Un checkpoint cubre el journal rotado que dejó un checkpoint fallido")
+    void testCheckpointCoversLeftoverRotatedJournal() throws IOException {
+        RecordCollection collection = openCollection(Long.MAX_VALUE);
+        collection.save(record("1", "a@example.com", 100));
+        collection.save(record("2", "b@example.com", 200));
+        // Como si un checkpoint anterior hubiera rotado y fallado antes del snapshot
+        Files.copy(dir.resolve("info.journal"), dir.resolve("info.journal.old"));
+
+        collection.compact();
+        assertFalse(Files.exists(dir.resolve("info.journal.old")));
+        assertEquals(2, BinarySnapshot.open(snapshotPath(), mapper).size());
+        storage.close();
+
+        assertEquals(2, openCollection().size());
+        storage.close();
+    }
+
+    @Test
+    @DisplayName("saveAllAsync guarda el lote completo y sobrevive a una recarga")
+    void testSaveAll() throws IOException {
+        RecordCollection collection = openCollection();
+        collection.save(record("1", "a@example.com", 100));
+        List<ObjectNode> lote = new ArrayList<>();
+        for (int i = 2; i <= 300; i++) {
+            lote.add(record(String.valueOf(i), i % 2 == 0 ? "a@example.com" : "b@example.com", i));
+        }
+        lote.add(record("1", "a@example.com", 999));
+        RecordCollection.awaitDurable(collection.saveAllAsync(lote));
+
+        assertEquals(300, collection.size());
+        assertEquals(999, collection.findLatestByEmail("a@example.com").get("ingreso").asDouble(), 0.01);
+        storage.close();
+
+        RecordCollection reloaded = openCollection();
+        assertEquals(300, reloaded.size());
+        // Ids 2..300: los 150 pares son de a (más el id 1, reemplazado) y los 149 impares de b
+        assertEquals(151, reloaded.findByEmail("a@example.com").size());
+        assertEquals(149, reloaded.findByEmail("b@example.com").size());
+        assertEquals(999, reloaded.findLatestByEmail("a@example.com").get("ingreso").asDouble(), 0.01);
+        storage.close();
+    }
+
+    @Test
+    @DisplayName("La compactación pliega el journal en el snapshot")
+    void testCompaction() throws IOException {
+        RecordCollection collection = openCollection(0);
+        collection.save(record("1", "a@example.com", 100));
+        collection.save(record("2", "a@example.com", 300));
+        collection.compact();
+
+        assertEquals(0, Files.size(dir.resolve("info.journal")));
+        assertFalse(Files.exists(dir.resolve("info.journal.old")));
+        assertEquals(2, BinarySnapshot.open(snapshotPath(), mapper).size());
+
+        collection.save(record("3", "c@example.com", 50));
+        storage.close();
+
+        RecordCollection reloaded = openCollection();
+        assertEquals(3, reloaded.size());
+        assertEquals(2, reloaded.findByEmail("a@example.com").size());
+        storage.close();
+    }
+
+    @Test
+    @DisplayName("Cada compactación escribe una generación nueva y borra la anterior")
+    void testCompactionGenerations() throws IOException {
+        RecordCollection collection = openCollection(0);
+        collection.save(record("1", "a@example.com", 100));
+        collection.save(record("2", "b@example.com", 200));
+        collection.compact();
+        storage.close();
+
+        // Los registros recargados siguen sin parsear dentro del snapshot mapeado
+        RecordCollection reloaded = openCollection(0);
+        Path first = snapshotPath();
+        reloaded.save(record("3", "c@example.com", 50));
+        reloaded.compact();
+
+        Path second = snapshotPath();
+        assertNotEquals(first, second);
+        assertFalse(Files.exists(first));
+        assertEquals(3, BinarySnapshot.open(second, mapper).size());
+        assertEquals(200, reloaded.findLatestByEmail("b@example.com").get("ingreso").asDouble(), 0.01);
+        storage.close();
+
+        assertEquals(3, openCollection().size());
+        storage.close();
+    }
+
+    @Test
+    @DisplayName("Un arreglo JSON existente se importa al snapshot binario")
+    void testImportJson() throws IOException {
+        ArrayNode array = mapper.createArrayNode();
+        array.add(record("1", "a@example.com", 100));
+        array.add(record("2", "b@example.com", 200));
+        mapper.writeValue(dir.resolve("info.json").toFile(), array);
+
+        openCollection();
+        storage.close();
+        assertTrue(Files.exists(snapshotPath()));
+
+        RecordCollection reloaded = openCollection();
+        assertEquals(2, reloaded.size());
+        assertEquals(200, reloaded.findLatestByEmail("b@example.com").get("ingreso").asDouble(), 0.01);
+        storage.close();
+    }
+
+    @Test
+    @DisplayName("Los registros de un email se paginan con un cursor")
+    void testPaginationByEmail() throws IOException {
+        RecordCollection collection = openCollection();
+        for (int i = 1; i <= 5; i++) {
+            collection.save(record("a" + i, "a@example.com", i));
+            collection.save(record("b" + i, "b@example.com", i));
+        }
+
+        List<ObjectNode> first = collection.findByEmail("a@example.com", null, 2);
+        assertEquals(List.of("a1", "a2"), ids(first));
+        List<ObjectNode> second = collection.findByEmail("a@example.com", "a2", 2);
+        assertEquals(List.of("a3", "a4"), ids(second));
+        List<ObjectNode> last = collection.findByEmail("a@example.com", "a4", 2);
+        assertEquals(List.of("a5"), ids(last));
+        assertTrue(collection.findByEmail("a@example.com", "a5", 2).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> collection.findByEmail("a@example.com", "b1", 2));
+        storage.close();
+    }
+
+    private List<String> ids(List<ObjectNode> records) {
+        List<String> ids = new ArrayList<>();
+        records.forEach(record -> ids.add(record.get("id").asText()));
+        return ids;
+    }
+
+    @Test
+    @DisplayName("Un cambio que no llega a ser durable se deshace en memoria")
+    void testRollbackOnFailedWrite() throws IOException {
+        HeldStorage held = new HeldStorage();
+        RecordCollection collection = new RecordCollection("info", held);
+        collection.load();
+        collection.saveAsync(record("1", "a@example.com", 100));
+        held.complete(null);
+
+        CompletableFuture<Void> moved = collection.saveAsync(record("1", "b@example.com", 200));
+        CompletableFuture<Void> added = collection.saveAsync(record("2", "a@example.com", 300));
+        CompletableFuture<Void> batch = collection.saveAllAsync(List.of(
+                record("3", "c@example.com", 10), record("1", "a@example.com", 400)));
+        assertEquals(3, collection.size());
+        held.complete(new IOException("fsync falló"));
+
+        assertThrows(IOException.class, () -> RecordCollection.awaitDurable(moved));
+        assertThrows(IOException.class, () -> RecordCollection.awaitDurable(added));
+        assertThrows(IOException.class, () -> RecordCollection.awaitDurable(batch));
+        assertEquals(1, collection.size());
+        assertEquals(100, collection.findById("1").orElseThrow().get("ingreso").asDouble(), 0.01);
+        assertEquals(List.of("1"), ids(collection.findByEmail("a@example.com")));
+        assertTrue(collection.findByEmail("b@example.com").isEmpty());
+        // El id 1 recupera su posición, así que sigue sirviendo como cursor
+        assertTrue(collection.findByEmail("a@example.com", "1", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("El checkpoint espera los cambios en curso y no copia los que fallan")
+    void testCheckpointCopiesOnlySettledChanges() throws Exception {
+        HeldStorage held = new HeldStorage();
+        RecordCollection collection = new RecordCollection("info", held);
+        collection.load();
+        collection.saveAsync(record("1", "a@example.com", 100));
+        held.complete(null);
+
+        collection.saveAsync(record("1", "a@example.com", 200));
+        collection.saveAsync(record("2", "b@example.com", 300));
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<?> checkpoint = pool.submit(() -> {
+            collection.compact();
+            return null;
+        });
+        Thread.sleep(200);
+        assertFalse(checkpoint.isDone(), "El checkpoint debe esperar los cambios sin confirmar");
+
+        held.complete(new IOException("fsync falló"));
+        checkpoint.get();
+        pool.shutdown();
+        assertEquals(1, held.checkpointed.size());
+        assertEquals(100, held.checkpointed.get(0).node().get("ingreso").asDouble(), 0.01);
+    }
+
+    /**
+     * Motor que retiene cada escritura hasta que la prueba la completa, en orden.
+     */
+    private static final class HeldStorage implements StorageEngine {
+        private final List<CompletableFuture<Void>> held = new ArrayList<>();
+        volatile List<StoredRecord> checkpointed;
+
+        @Override
+        public void loadAll(String collection, Consumer<StoredRecord> sink) {
+        }
+
+        @Override
+        public synchronized CompletableFuture<Void> write(String collection, ObjectNode record) {
+            CompletableFuture<Void> commit = new CompletableFuture<>();
+            held.add(commit);
+            return commit;
+        }
+
+        @Override
+        public void checkpoint(String collection, Supplier<List<StoredRecord>> current) {
+            checkpointed = current.get();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        synchronized void complete(Throwable error) {
+            for (CompletableFuture<Void> commit : held) {
+                if (error == null) {
+                    commit.complete(null);
+                } else {
+                    commit.completeExceptionally(error);
+                }
+            }
+            held.clear();
+        }
+    }
+
+    @Test
+    @DisplayName("Escrituras concurrentes de usuarios distintos no se pierden")
+    void testConcurrentWrites() throws Exception {
+        RecordCollection collection = openCollection();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            futures.add(pool.submit(() -> {
+                collection.save(record("id" + n, "user" + n + "@example.com", n));
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        storage.close();
+
+        RecordCollection reloaded = openCollection();
+        assertEquals(200, reloaded.size());
+        storage.close();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.api;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas unitarias de la caché de tokens JWT verificados
+ */
+class TokenCacheTest {
+
+    private static final long NOW = 1_000_000L;
+
+    @Test
+    @DisplayName("Una entrada vence en el instante de su exp y cuenta como fallo")
+    void testExpiry() {
+        TokenCache cache = new TokenCache(10);
+        cache.put("token", "a@example.com", NOW + 1000, NOW);
+
+        assertEquals("a@example.com", cache.get("token", NOW + 999));
+        assertNull(cache.get("token", NOW + 1000));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+
+        // Un token que ya venció ni siquiera se guarda
+        cache.put("vencido", "b@example.com", NOW, NOW);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Al llenarse descarta primero las vencidas y después un 10% de la capacidad")
+    void testEviction() {
+        TokenCache cache = new TokenCache(10);
+        for (int i = 0; i < 10; i++) {
+            cache.put("t" + i, "user" + i + "@example.com", i < 3 ? NOW + 10 : NOW + 10_000, NOW);
+        }
+        assertEquals(10, cache.size());
+
+        // Las tres vencidas dejan lugar sin tocar las vigentes
+        cache.put("nuevo", "nuevo@example.com", NOW + 10_000, NOW + 10);
+        assertEquals(8, cache.size());
+        for (int i = 3; i < 10; i++) {
+            assertNotNull(cache.get("t" + i, NOW + 10));
+        }
+
+        cache.put("otro", "otro@example.com", NOW + 10_000, NOW + 10);
+        cache.put("uno-mas", "uno-mas@example.com", NOW + 10_000, NOW + 10);
+        assertEquals(10, cache.size());
+        cache.put("lleno", "lleno@example.com", NOW + 10_000, NOW + 10);
+        assertEquals(10, cache.size());
+        assertEquals("lleno@example.com", cache.get("lleno", NOW + 10));
+    }
+
+    @Test
+    @DisplayName("Un token alterado no aprovecha el acierto del token original")
+    void testTamperedTokenMisses() {
+        TokenCache cache = new TokenCache(10);
+        String token = "eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJhQGV4YW1wbGUuY29tIn0.firma";
+        cache.put(token, "a@example.com", NOW + 1000, NOW);
+        assertEquals("a@example.com", cache.get(token, NOW));
+
+        String tampered = token.substring(0, token.length() - 1) + "X";
+        assertNull(cache.get(tampered, NOW));
+        assertEquals(1, cache.misses());
+    }
+}
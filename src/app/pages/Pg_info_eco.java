@@ -5,10 +5,6 @@ import app.services.ApiEconomicosService;
 import app.datos.Datos_eco;
 import app.session.UserSession;
 import com.google.gson.Gson;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import javax.swing.JOptionPane;
 
 /*
@@ -1,8 +1,8 @@
 package app.pages;
 
 import app.services.ApiClient;
+import app.services.ApiPersonalesService;
 import app.session.UserSession;
-import app.services.ApiConfig;
 import app.datos.Datos_per;
 import com.google.gson.Gson;
 /*import java.io.OutputStream;
@@ -290,15 +290,17 @@ public class Pg_info_per extends javax.swing.JPanel {
             return;
         }
 
-        //7. Enviar datos con mónada Try (ApiClient)
-        ApiClient.enviarDatos(ApiConfig.PERSONAS_URL + "info_personal", jsonPersona, token)
-                .onSuccess(status -> {
-                    System.out.println("Código de respuesta: " + status);
-                    javax.swing.JOptionPane.showMessageDialog(this, "Datos enviados correctamente");
-                })
-                .onFailure(e -> {
-                    e.printStackTrace();
-                    javax.swing.JOptionPane.showMessageDialog(this, "Error al enviar: " + e.getMessage());
+        //7. Enviar datos sin bloquear el EDT (el callback ya corre en el EDT)
+        ApiPersonalesService.enviarDatosPersonalesAsync(persona)
+                .whenComplete((status, error) -> {
+                    if (error == null) {
+                        System.out.println("Código de respuesta: " + status);
+                        javax.swing.JOptionPane.showMessageDialog(this, "Datos enviados correctamente");
+                    } else {
+                        Throwable causa = ApiClient.causa(error);
+                        causa.printStackTrace();
+                        javax.swing.JOptionPane.showMessageDialog(this, "Error al enviar: " + causa.getMessage());
+                    }
                 });
 
         //8. Limpiar campos después de guardar
@@ -2,15 +2,17 @@ package app.pages;
 
 import app.session.UserSession;
 
+import app.services.ApiClient;
 import app.services.ApiConfig;
+import app.services.CacheRespuestas;
 import app.datos.Datos_eco;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import java.awt.BorderLayout;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import javax.swing.JButton;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -49,6 +51,13 @@ import javax.swing.text.StyledDocument;
  */
 public class Pg_info_res extends javax.swing.JPanel {
 
+    // Pasa a false si la API no tiene GET /dashboard; desde ahí se usan los dos obtener_*
+    private static volatile boolean dashboardDisponible = true;
+
+    private static final String DASHBOARD = ApiConfig.PERSONAS_URL + "dashboard";
+    private static final String INFO_PERSONAL = ApiConfig.PERSONAS_URL + "obtener_info_personal";
+    private static final String INFO_FINANCIERA = ApiConfig.PERSONAS_URL + "obtener_info_financiera";
+
     /**
      * Creates new form pg_info_res
      */
@@ -56,16 +65,8 @@ public class Pg_info_res extends javax.swing.JPanel {
 
         initComponents();
 
-        // ACTUALIZACIÓN AUTOMÁTICA AL CREAR EL PANEL
-        new Thread(() -> {
-            try {
-                // Espera breve para dejar que se cargue la UI
-                Thread.sleep(50);
-                actualizarResumen(); // carga todo automáticamente
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }).start();
+        // ACTUALIZACIÓN AUTOMÁTICA AL CREAR EL PANEL (después de armar la UI; no bloquea el EDT)
+        SwingUtilities.invokeLater(this::actualizarResumen);
         // === ESTILO Y COLORES ===
         Color COLOR_FONDO = new Color(245, 247, 250);
         Color COLOR_BOTON = new Color(33, 95, 246);
@@ -228,57 +229,198 @@ public class Pg_info_res extends javax.swing.JPanel {
         }).start();
     }
 
+    /**
+     * Carga el historial personal y la información financiera y pinta tabla y gráfico en
+     * una sola actualización del EDT. Con sesión se usa {@code GET /dashboard}, que trae las
+     * dos cosas en una respuesta; si la API no lo tiene se piden los dos {@code obtener_*}
+     * a la vez. Las respuestas se parsean fuera del EDT.
+     *
+     * <p>Lo último que se cargó para el usuario ({@link CacheRespuestas}) se pinta al
+     * instante al volver al panel. Si ya pasó {@link ApiConfig#CACHE_TTL_MS} se refresca en
+     * segundo plano y se vuelve a pintar solo si los datos cambiaron.</p>
+     */
     private void actualizarResumen() {
-        try {
-            cargarDatos();
+        long inicio = System.nanoTime();
+        String token = UserSession.getInstance().getToken();
 
-            Datos_eco eco = obtenerDatosEconomicos();
-            if (eco != null) {
-                datosEcoActual = eco; // Guardar los datos para el chatbot
-                mostrarGrafico(eco);
+        Resumen enCache = token != null ? resumenEnCache() : null;
+        if (enCache != null) {
+            mostrarResumen(enCache, inicio, true);
+            if (enCache.vigente) {
+                return;
             }
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                    "Error al actualizar el resumen: " + e.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
         }
+
+        CompletableFuture<Resumen> dashboard = token != null && dashboardDisponible
+                ? cargarDashboard(token, inicio)
+                : CompletableFuture.completedFuture(null);
+        dashboard.thenCompose(resumen -> resumen != null
+                        ? CompletableFuture.completedFuture(resumen)
+                        : cargarPorSeparado(token, inicio))
+                .whenCompleteAsync((resumen, error) -> {
+                    if (error != null) {
+                        resumen = new Resumen();
+                        leerPersonas(resumen, null, error);
+                    }
+                    if (enCache == null) {
+                        mostrarResumen(resumen, inicio, true);
+                    } else if (resumen.mensaje == null && !resumen.mismosDatos(enCache)) {
+                        // Ya se mostró lo guardado: se actualiza sin repetir los avisos
+                        mostrarResumen(resumen, inicio, false);
+                    }
+                }, ApiClient.EDT);
     }
 
-    // ================================================
-    // MÉTODO PARA TRAER DATOS DE LA API Y MOSTRARLOS
-    // ================================================
-    private Datos_eco obtenerDatosEconomicos() {
-        try {
-            String token = UserSession.getInstance().getToken();
-            if (token == null || token.isEmpty()) {
-                System.out.println("⚠️ No hay token, usando default");
-                token = ""; // La API acepta sin token usando default@example.com
+    /**
+     * El resumen armado con las respuestas guardadas del usuario en sesión, o null si falta
+     * alguna. Es vigente solo si todas las que usa lo son.
+     */
+    private Resumen resumenEnCache() {
+        Resumen resumen;
+        CacheRespuestas.Entrada dashboard = CacheRespuestas.obtener(DASHBOARD);
+        if (dashboard != null) {
+            resumen = leerDashboard(dashboard.cuerpo);
+            resumen.vigente = dashboard.vigente();
+        } else {
+            CacheRespuestas.Entrada personal = CacheRespuestas.obtener(INFO_PERSONAL);
+            CacheRespuestas.Entrada financiera = CacheRespuestas.obtener(INFO_FINANCIERA);
+            if (personal == null || financiera == null) {
+                return null;
             }
+            resumen = new Resumen();
+            resumen.cuerpoPersonal = personal.cuerpo;
+            resumen.cuerpoFinanciero = financiera.cuerpo;
+            leerPersonas(resumen, personal.cuerpo, null);
+            // Volver al panel no repite el aviso del total
+            resumen.totalRegistros = null;
+            resumen.eco = leerDatosEconomicos(financiera.cuerpo, null);
+            resumen.vigente = personal.vigente() && financiera.vigente();
+        }
+        resumen.desdeCache = true;
+        return resumen;
+    }
 
-            // === HACER GET A LA API ===
-            URL url = new URL(ApiConfig.PERSONAS_URL + "obtener_info_financiera");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Accept", "application/json");
-            if (!token.isEmpty()) {
-                conn.setRequestProperty("x-access-token", token);
+    /**
+     * Todo el resumen con un solo GET a {@code /dashboard}. Completa con null si la API no
+     * tiene ese endpoint (una versión anterior): entonces no se vuelve a intentar hasta
+     * reiniciar la aplicación.
+     */
+    private CompletableFuture<Resumen> cargarDashboard(String token, long inicio) {
+        return CacheRespuestas.obtenerAsync(DASHBOARD, token).handle((respuesta, error) -> {
+            if (error == null && respuesta.status == 404) {
+                dashboardDisponible = false;
+                return null;
+            }
+            Resumen resumen;
+            if (error != null) {
+                resumen = new Resumen();
+                leerPersonas(resumen, null, error);
+            } else if (!respuesta.isOk()) {
+                resumen = new Resumen();
+                resumen.mensaje = "Error al obtener datos: " + respuesta.cuerpo;
+            } else {
+                resumen = leerDashboard(respuesta.cuerpo);
             }
+            resumen.porDashboard = true;
+            resumen.msDashboard = milisDesde(inicio);
+            return resumen;
+        });
+    }
 
-            int status = conn.getResponseCode();
-            BufferedReader br = (status >= 200 && status < 300)
-                    ? new BufferedReader(new InputStreamReader(conn.getInputStream(), "utf-8"))
-                    : new BufferedReader(new InputStreamReader(conn.getErrorStream(), "utf-8"));
+    private Resumen leerDashboard(String cuerpo) {
+        Resumen resumen = new Resumen();
+        resumen.cuerpoDashboard = cuerpo;
+        // El historial viene en "personas" y "total_registros", como en obtener_info_personal
+        leerPersonas(resumen, cuerpo, null);
+        // El aviso del total queda para el pedido explícito a obtener_info_personal: el
+        // dashboard se carga en cada visita al panel
+        resumen.totalRegistros = null;
+        try {
+            JsonElement financiera = JsonParser.parseString(cuerpo).getAsJsonObject().get("financiera");
+            resumen.eco = leerDatosEconomicos(financiera != null ? financiera.toString() : null, null);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        return resumen;
+    }
 
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                response.append(line.trim());
-            }
-            conn.disconnect();
+    /**
+     * Pide el historial personal y la información financiera a la vez (en
+     * {@link ApiClient#EJECUTOR}); el resumen tarda lo que el más lento y no la suma.
+     */
+    private CompletableFuture<Resumen> cargarPorSeparado(String token, long inicio) {
+        Resumen resumen = new Resumen();
+
+        CompletableFuture<String> jsonPersonal = token == null
+                ? CompletableFuture.completedFuture(null)
+                : CacheRespuestas.obtenerAsync(INFO_PERSONAL, token).thenApply(respuesta -> respuesta.cuerpo);
+        // La API acepta la información financiera sin token usando default@example.com
+        CompletableFuture<String> jsonFinanciero = CacheRespuestas.obtenerAsync(INFO_FINANCIERA,
+                token == null ? "" : token).thenApply(respuesta -> respuesta.cuerpo);
+
+        CompletableFuture<Void> personal = jsonPersonal.handle((json, error) -> {
+            resumen.msPersonal = milisDesde(inicio);
+            resumen.cuerpoPersonal = json;
+            leerPersonas(resumen, json, error);
+            return null;
+        });
+        CompletableFuture<Void> financiera = jsonFinanciero.handle((json, error) -> {
+            resumen.msFinanciera = milisDesde(inicio);
+            resumen.cuerpoFinanciero = json;
+            resumen.eco = leerDatosEconomicos(json, error);
+            return null;
+        });
+
+        return CompletableFuture.allOf(personal, financiera).thenApply(nada -> resumen);
+    }
+
+    /**
+     * Actualización de la UI con todo lo que se cargó; con {@code avisos} muestra además el
+     * total de registros o el mensaje de la API. Corre en el EDT.
+     */
+    private void mostrarResumen(Resumen resumen, long inicio, boolean avisos) {
+        if (resumen.personas != null) {
+            mostrarEnTabla(resumen.personas);
+        }
+        if (resumen.eco != null) {
+            datosEcoActual = resumen.eco; // Guardar los datos para el chatbot
+            mostrarGrafico(resumen.eco);
+        }
+        if (resumen.desdeCache) {
+            System.out.println(String.format("Resumen desde caché en %d ms (%s)",
+                    milisDesde(inicio), resumen.vigente ? "vigente" : "vencido, refrescando"));
+        } else if (resumen.porDashboard) {
+            System.out.println(String.format("Resumen cargado en %d ms (dashboard: %d ms)",
+                    milisDesde(inicio), resumen.msDashboard));
+        } else {
+            System.out.println(String.format(
+                    "Resumen cargado en %d ms (obtener_info_personal: %d ms, obtener_info_financiera: %d ms, en serie: ~%d ms)",
+                    milisDesde(inicio), resumen.msPersonal, resumen.msFinanciera,
+                    resumen.msPersonal + resumen.msFinanciera));
+        }
 
-            String jsonResponse = response.toString();
+        if (!avisos) {
+            return;
+        }
+        if (resumen.mensaje != null) {
+            JOptionPane.showMessageDialog(this, resumen.mensaje);
+        } else if (resumen.totalRegistros != null) {
+            JOptionPane.showMessageDialog(this, "Total de registros: " + resumen.totalRegistros);
+        }
+    }
+
+    private static long milisDesde(long inicio) {
+        return (System.nanoTime() - inicio) / 1_000_000;
+    }
+
+    // ================================================
+    // MÉTODOS PARA PARSEAR LAS RESPUESTAS (fuera del EDT)
+    // ================================================
+    private Datos_eco leerDatosEconomicos(String jsonResponse, Throwable error) {
+        try {
+            if (error != null) {
+                throw ApiClient.causa(error);
+            }
             //System.out.println("📥 Respuesta API (info financiera): " + jsonResponse);
 
             // === PARSEAR JSON DIRECTAMENTE (nuevo formato) ===
@@ -309,7 +451,7 @@ public class Pg_info_res extends javax.swing.JPanel {
             eco.setFuenteIngreso(datos.getOrDefault("fuenteIngreso", "No especificado").toString());
             return eco;
 
-        } catch (Exception e) {
+        } catch (Throwable e) {
             e.printStackTrace();
             System.err.println("Error al obtener datos económicos: " + e.getMessage());
             return null;
@@ -332,39 +474,15 @@ public class Pg_info_res extends javax.swing.JPanel {
         }
     }
 
-    private void cargarDatos() {
+    private void leerPersonas(Resumen resumen, String jsonResponse, Throwable error) {
+        if (error == null && jsonResponse == null) {
+            resumen.mensaje = "No hay sesión activa. Por favor, inicie sesión.";
+            return;
+        }
         try {
-            // En el método cargarDatos, antes de hacer la conexión:
-            String token = UserSession.getInstance().getToken();
-            if (token == null) {
-                JOptionPane.showMessageDialog(this, "No hay sesión activa. Por favor, inicie sesión.");
-                return;
-            }
-
-// Modifica la conexión agregando el header del token:
-            URL url = new URL(ApiConfig.PERSONAS_URL + "obtener_info_personal");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Accept", "application/json");
-            conn.setRequestProperty("x-access-token", token); // Agregar el token
-
-            int status = conn.getResponseCode();
-
-            BufferedReader br;
-            if (status >= 200 && status < 300) {
-                br = new BufferedReader(new InputStreamReader(conn.getInputStream(), "utf-8"));
-            } else {
-                br = new BufferedReader(new InputStreamReader(conn.getErrorStream(), "utf-8"));
+            if (error != null) {
+                throw ApiClient.causa(error);
             }
-
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                response.append(line.trim());
-            }
-            conn.disconnect();
-
-            String jsonResponse = response.toString();
             System.out.println("Respuesta GET: " + jsonResponse);
 
             Gson gson = new Gson();
@@ -372,24 +490,48 @@ public class Pg_info_res extends javax.swing.JPanel {
             if (jsonResponse.startsWith("{")) {
                 // Caso: objeto con lista de personas adentro
                 RespuestaPersonas respuesta = gson.fromJson(jsonResponse, RespuestaPersonas.class);
-                mostrarEnTabla(respuesta.getPersonas().toArray(new Persona[0]));
-
-                JOptionPane.showMessageDialog(this,
-                        "Total de registros: " + respuesta.getTotal_registros());
+                resumen.personas = respuesta.getPersonas().toArray(new Persona[0]);
+                resumen.totalRegistros = respuesta.getTotal_registros();
 
             } else if (jsonResponse.startsWith("[")) {
                 // Caso: array directo
-                Persona[] personas = gson.fromJson(jsonResponse, Persona[].class);
-                mostrarEnTabla(personas);
+                resumen.personas = gson.fromJson(jsonResponse, Persona[].class);
 
             } else {
                 // Caso: solo mensaje en texto
-                JOptionPane.showMessageDialog(this, jsonResponse);
+                resumen.mensaje = jsonResponse;
             }
 
-        } catch (Exception e) {
+        } catch (Throwable e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error al obtener datos: " + e.getMessage());
+            resumen.mensaje = "Error al obtener datos: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Lo que muestra el panel, ya parseado. Sin dashboard cada pedido completa su parte; el
+     * {@code allOf} de {@link #cargarPorSeparado} garantiza que el EDT lo ve completo.
+     */
+    private static final class Resumen {
+        Persona[] personas;       // null si no hay historial para la tabla
+        Integer totalRegistros;   // solo de una respuesta nueva de obtener_info_personal
+        String mensaje;           // texto de la API o error del historial
+        Datos_eco eco;            // null si no hay información económica
+        // Respuestas de las que salió, para saber si un refresco trajo algo nuevo
+        String cuerpoDashboard;
+        String cuerpoPersonal;
+        String cuerpoFinanciero;
+        boolean desdeCache;
+        boolean vigente;
+        boolean porDashboard;
+        long msDashboard;
+        long msPersonal;
+        long msFinanciera;
+
+        boolean mismosDatos(Resumen otro) {
+            return Objects.equals(cuerpoDashboard, otro.cuerpoDashboard)
+                    && Objects.equals(cuerpoPersonal, otro.cuerpoPersonal)
+                    && Objects.equals(cuerpoFinanciero, otro.cuerpoFinanciero);
         }
     }
     // ================================================
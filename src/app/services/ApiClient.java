@@ -1,29 +1,274 @@
-
 package app.services;
 
 import io.vavr.control.Try;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import javax.swing.SwingUtilities;
 
+/**
+ * Cliente HTTP compartido por todas las pantallas. Un único {@link HttpClient} mantiene las
+ * conexiones abiertas (keep-alive) y las reutiliza entre llamadas, usa HTTP/2 cuando el
+ * servidor lo ofrece y aplica los mismos timeouts a todo. Las respuestas se decodifican en
+ * un solo lugar (gzip y UTF-8).
+ *
+ * <p>Las versiones {@code *Async} no bloquean: devuelven un {@link CompletableFuture} que se
+ * completa en {@link #EJECUTOR}. {@link #enEdt} lo pasa al hilo de Swing. Las
+ * versiones con {@link Try} esperan la respuesta y no deben llamarse desde el EDT.</p>
+ */
 public class ApiClient {
 
-    public static Try<Integer> enviarDatos(String endpoint, String json, String token) {
-        return Try.of(() -> {
-            URL url = new URL(endpoint);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json; utf-8");
-            conn.setRequestProperty("Accept", "application/json");
-            conn.setRequestProperty("x-access-token", token);
-            conn.setDoOutput(true);
-
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = json.getBytes("utf-8");
-                os.write(input, 0, input.length);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Hilos compartidos por toda la aplicación para esperar respuestas y procesarlas
+     * (parsear JSON, combinar resultados) fuera del EDT. El cliente HTTP completa sus
+     * futuros aquí, así que lo que se encadena con {@code thenApply}/{@code handle} también
+     * corre en este pool. Son daemon para no impedir que la aplicación se cierre.
+     */
+    public static final ExecutorService EJECUTOR = Executors.newFixedThreadPool(4, new HilosDaemon());
+
+    private static final HttpClient http = HttpClient.newBuilder()
+            .executor(EJECUTOR)
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    // Última respuesta 200 de cada GET (por URL y token) junto con su ETag. LRU acotado a
+    // ApiConfig.MAX_RESPUESTAS_ETAG entradas; se vacía al cambiar o cerrar la sesión
+    private static final Map<String, RespuestaGuardada> respuestas = Collections.synchronizedMap(
+            new LinkedHashMap<String, RespuestaGuardada>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, RespuestaGuardada> eldest) {
+                    return size() > ApiConfig.MAX_RESPUESTAS_ETAG;
+                }
+            });
+
+    // Ejecuta en el hilo de eventos de Swing
+    public static final Executor EDT = SwingUtilities::invokeLater;
+
+    /**
+     * Código de estado y cuerpo (ya descomprimido) de una respuesta, y los segundos del
+     * header Retry-After (-1 si no vino o no es un número de segundos).
+     */
+    public static final class Respuesta {
+        public final int status;
+        public final String cuerpo;
+        public final long retryAfter;
+
+        Respuesta(int status, String cuerpo) {
+            this(status, cuerpo, -1);
+        }
+
+        Respuesta(int status, String cuerpo, long retryAfter) {
+            this.status = status;
+            this.cuerpo = cuerpo;
+            this.retryAfter = retryAfter;
+        }
+
+        public boolean isOk() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    /**
+     * POST con cuerpo JSON. Un token null o vacío hace el pedido sin x-access-token.
+     */
+    public static CompletableFuture<Respuesta> enviarAsync(String endpoint, String json, String token) {
+        HttpRequest request = peticion(endpoint, token)
+                .header("Content-Type", "application/json; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8))
+                .build();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(ApiClient::decodificar);
+    }
+
+    /**
+     * Como {@link #enviarAsync} pero solo el código de estado; un código que no es 2xx
+     * completa el futuro con {@link ApiException}.
+     */
+    public static CompletableFuture<Integer> enviarDatosAsync(String endpoint, String json, String token) {
+        return enviarAsync(endpoint, json, token).thenApply(respuesta -> {
+            if (!respuesta.isOk()) {
+                throw new ApiException(respuesta.status, respuesta.cuerpo, respuesta.retryAfter);
             }
+            return respuesta.status;
+        });
+    }
 
-            return conn.getResponseCode();
+    /**
+     * GET condicional: si ya hay una respuesta guardada para la URL y el token, se envía
+     * su ETag en If-None-Match y, si la API contesta 304, se devuelve el cuerpo guardado
+     * (con estado 200) sin volver a descargarlo. Las respuestas de error se devuelven pero
+     * no se guardan. Un token vacío hace el pedido sin el header x-access-token.
+     */
+    public static CompletableFuture<Respuesta> obtenerAsync(String endpoint, String token) {
+        String clave = endpoint + "\n" + token;
+        RespuestaGuardada guardada = respuestas.get(clave);
+
+        HttpRequest.Builder request = peticion(endpoint, token).GET();
+        if (guardada != null) {
+            request.header("If-None-Match", guardada.etag);
+        }
+        return http.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            if (response.statusCode() == 304 && guardada != null) {
+                return new Respuesta(200, guardada.cuerpo);
+            }
+            Respuesta respuesta = decodificar(response);
+            String etag = response.headers().firstValue("ETag").orElse(null);
+            if (respuesta.isOk() && etag != null) {
+                respuestas.put(clave, new RespuestaGuardada(etag, respuesta.cuerpo));
+            } else {
+                respuestas.remove(clave);
+            }
+            return respuesta;
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Descarta las respuestas guardadas para los GET condicionales. {@link app.session.UserSession}
+     * lo llama cuando cambia el token o se cierra la sesión, para que no queden en memoria
+     * datos de un usuario que ya no está.
+     */
+    public static void olvidarRespuestas() {
+        respuestas.clear();
+    }
+
+    /**
+     * Solo el cuerpo de {@link #obtenerAsync}, sea cual sea el estado.
+     */
+    public static CompletableFuture<String> obtenerDatosAsync(String endpoint, String token) {
+        return obtenerAsync(endpoint, token).thenApply(respuesta -> respuesta.cuerpo);
+    }
+
+    public static Try<Respuesta> enviar(String endpoint, String json, String token) {
+        return Try.of(() -> esperar(enviarAsync(endpoint, json, token)));
+    }
+
+    /**
+     * Código de estado del POST, sea cual sea (no falla por un 4xx o 5xx).
+     */
+    public static Try<Integer> enviarDatos(String endpoint, String json, String token) {
+        return enviar(endpoint, json, token).map(respuesta -> respuesta.status);
+    }
+
+    public static Try<String> obtenerDatos(String endpoint, String token) {
+        return Try.of(() -> esperar(obtenerDatosAsync(endpoint, token)));
+    }
+
+    /**
+     * El mismo resultado que {@code futuro}, pero quien encadene sobre el futuro devuelto
+     * corre en el EDT.
+     */
+    public static <T> CompletableFuture<T> enEdt(CompletableFuture<T> futuro) {
+        return futuro.whenCompleteAsync((resultado, error) -> { }, EDT);
+    }
+
+    /**
+     * Causa original de un error de un futuro (sin los {@link CompletionException} que
+     * agrega {@link CompletableFuture}).
+     */
+    public static Throwable causa(Throwable error) {
+        Throwable causa = error;
+        while (causa instanceof CompletionException && causa.getCause() != null) {
+            causa = causa.getCause();
+        }
+        return causa;
+    }
+
+    private static <T> T esperar(CompletableFuture<T> futuro) throws Throwable {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            throw causa(e);
+        }
+    }
+
+    /**
+     * Headers comunes: JSON, gzip si {@link ApiConfig#RESPUESTAS_GZIP} y el token si hay.
+     */
+    private static HttpRequest.Builder peticion(String endpoint, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(endpoint))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json");
+        if (ApiConfig.RESPUESTAS_GZIP) {
+            request.header("Accept-Encoding", "gzip");
+        }
+        if (token != null && !token.isEmpty()) {
+            request.header("x-access-token", token);
+        }
+        return request;
+    }
+
+    private static Respuesta decodificar(HttpResponse<byte[]> response) {
+        byte[] body = response.body();
+        boolean gzip = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        if (gzip) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new Respuesta(response.statusCode(), new String(body, StandardCharsets.UTF_8).trim(),
+                retryAfter(response));
+    }
+
+    /**
+     * Segundos del header Retry-After; -1 si no vino o trae una fecha en vez de segundos.
+     */
+    private static long retryAfter(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After")
+                .map(valor -> {
+                    try {
+                        return Long.parseLong(valor.trim());
+                    } catch (NumberFormatException e) {
+                        return -1L;
+                    }
+                })
+                .orElse(-1L);
+    }
+
+    private static final class HilosDaemon implements ThreadFactory {
+        private final AtomicInteger contador = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable tarea) {
+            Thread hilo = new Thread(tarea, "api-client-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        }
+    }
+
+    private static final class RespuestaGuardada {
+        final String etag;
+        final String cuerpo;
+
+        RespuestaGuardada(String etag, String cuerpo) {
+            this.etag = etag;
+            this.cuerpo = cuerpo;
+        }
+    }
+}
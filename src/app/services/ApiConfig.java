@@ -13,5 +13,11 @@ public class ApiConfig {
     // URL base de la API
     public static final String BASE_URL = "http://127.0.0.1:8080/";
     public static final String PERSONAS_URL = BASE_URL;
+    // Pedir las respuestas de los GET comprimidas con gzip (la API las comprime desde 2 KB)
+    public static final boolean RESPUESTAS_GZIP = true;
+    // Tiempo en que una respuesta guardada en CacheRespuestas se muestra sin volver a pedirla
+    public static final long CACHE_TTL_MS = 60_000;
+    // Respuestas con ETag que ApiClient guarda para los GET condicionales (las menos usadas salen)
+    public static final int MAX_RESPUESTAS_ETAG = 64;
 }
 
@@ -7,70 +7,82 @@ package app.services;
 import app.session.UserSession;
 import app.datos.Datos_eco;
 import com.google.gson.Gson;
+import java.util.concurrent.CompletableFuture;
 import javax.swing.JOptionPane;
-import javax.swing.SwingUtilities;
 
 public class ApiEconomicosService {
 
-    public static void enviarDatosEconomicos(Datos_eco eco, Runnable onSuccess, Runnable onFailure) {
-        try {
-            String token = UserSession.getInstance().getToken();
-            if (token == null || token.isEmpty()) {
-                JOptionPane.showMessageDialog(null,
-                        "No hay sesión activa. Por favor inicia sesión.",
-                        "Error de Sesión",
-                        JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
-            // Convertir el objeto a JSON
-            Gson gson = new Gson();
-            String jsonEco = gson.toJson(eco);
-            System.out.println("JSON enviado a la API:");
-            System.out.println(jsonEco);
+    /**
+     * Envía los datos económicos sin bloquear. El futuro se completa en el EDT con el código
+     * de estado, o con error si no hay sesión ({@link IllegalStateException}) o la API
+     * responde un error ({@link ApiException}).
+     */
+    public static CompletableFuture<Integer> enviarDatosEconomicosAsync(Datos_eco eco) {
+        String token = UserSession.getInstance().getToken();
+        if (token == null || token.isEmpty()) {
+            return ApiClient.enEdt(CompletableFuture.failedFuture(new IllegalStateException("No hay sesión activa")));
+        }
+        String jsonEco = new Gson().toJson(eco);
+        // Se invalida al enviar (descarta los GET que estén en curso) y al terminar, aunque
+        // falle: un timeout puede haber guardado igual
+        CacheRespuestas.invalidar();
+        return ApiClient.enEdt(ApiClient.enviarDatosAsync(ApiConfig.PERSONAS_URL + "info_financiera", jsonEco, token)
+                .whenComplete((status, error) -> CacheRespuestas.invalidar()));
+    }
 
-            // Enviar de forma asíncrona
-            ApiClient.enviarDatos(ApiConfig.PERSONAS_URL + "info_financiera", jsonEco, token)
-                    .onSuccess(status -> {
-                        SwingUtilities.invokeLater(() -> {
-                            JOptionPane.showMessageDialog(null,
-                                    "Datos económicos enviados correctamente.",
-                                    "Éxito",
-                                    JOptionPane.INFORMATION_MESSAGE);
+    /**
+     * JSON de {@code obtener_info_financiera}, en el EDT. Sin sesión se pide sin token (la
+     * API responde con los datos por defecto).
+     */
+    public static CompletableFuture<String> obtenerDatosEconomicosAsync() {
+        String token = UserSession.getInstance().getToken();
+        return ApiClient.enEdt(ApiClient.obtenerDatosAsync(ApiConfig.PERSONAS_URL + "obtener_info_financiera",
+                token != null ? token : ""));
+    }
 
-                            if (onSuccess != null) {
-                                onSuccess.run();
-                            }
-                        });
-                    })
-                    .onFailure(e -> {
-                        SwingUtilities.invokeLater(() -> {
-                            String mensaje = "Error al enviar datos: " + e.getMessage();
+    public static void enviarDatosEconomicos(Datos_eco eco, Runnable onSuccess, Runnable onFailure) {
+        String token = UserSession.getInstance().getToken();
+        if (token == null || token.isEmpty()) {
+            JOptionPane.showMessageDialog(null,
+                    "No hay sesión activa. Por favor inicia sesión.",
+                    "Error de Sesión",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
 
-                            if (e.getMessage().contains("401")) {
-                                mensaje = "Sesión expirada. Por favor inicia sesión nuevamente.";
-                                UserSession.getInstance().clearSession();
-                            } else if (e.getMessage().contains("400")) {
-                                mensaje = "Los datos enviados son inválidos. Verifica la información.";
-                            } else if (e.getMessage().contains("500")) {
-                                mensaje = "Error en el servidor. Intenta más tarde.";
-                            }
+        enviarDatosEconomicosAsync(eco).whenComplete((status, error) -> {
+            if (error == null) {
+                JOptionPane.showMessageDialog(null,
+                        "Datos económicos enviados correctamente.",
+                        "Éxito",
+                        JOptionPane.INFORMATION_MESSAGE);
 
-                            JOptionPane.showMessageDialog(null, mensaje, "❌ Error", JOptionPane.ERROR_MESSAGE);
+                if (onSuccess != null) {
+                    onSuccess.run();
+                }
+                return;
+            }
 
-                            if (onFailure != null) {
-                                onFailure.run();
-                            }
-                        });
-                    });
+            Throwable e = ApiClient.causa(error);
+            String mensaje = "Error al enviar datos: " + e.getMessage();
+            if (e instanceof ApiException) {
+                int codigo = ((ApiException) e).getStatus();
+                if (codigo == 401) {
+                    mensaje = "Sesión expirada. Por favor inicia sesión nuevamente.";
+                    UserSession.getInstance().clearSession();
+                } else if (codigo == 400) {
+                    mensaje = "Los datos enviados son inválidos. Verifica la información.";
+                } else if (codigo >= 500) {
+                    mensaje = "Error en el servidor. Intenta más tarde.";
+                }
+            }
 
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(null,
-                    "Error inesperado: " + e.getMessage(),
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
+            JOptionPane.showMessageDialog(null, mensaje, "❌ Error", JOptionPane.ERROR_MESSAGE);
 
-        }
+            if (onFailure != null) {
+                onFailure.run();
+            }
+        });
     }
 
 }
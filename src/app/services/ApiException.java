@@ -0,0 +1,37 @@
+package app.services;
+
+/**
+ * Respuesta de la API con un código de error (4xx o 5xx). El mensaje empieza con el código,
+ * por ejemplo {@code "HTTP 401: ..."}.
+ */
+public class ApiException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+    private final long retryAfter;
+
+    public ApiException(int status, String cuerpo) {
+        this(status, cuerpo, -1);
+    }
+
+    /**
+     * {@code retryAfter} son los segundos del header Retry-After, o -1 si no vino.
+     */
+    public ApiException(int status, String cuerpo, long retryAfter) {
+        super("HTTP " + status + ": " + cuerpo);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Segundos que la API pidió esperar antes de reintentar (por ejemplo con un 503), o -1.
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,41 @@
+package app.services;
+
+import app.datos.Datos_per;
+import app.session.UserSession;
+import com.google.gson.Gson;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Información personal del usuario en sesión. Los futuros se completan en el EDT, así que
+ * sus callbacks pueden tocar la interfaz directamente.
+ */
+public class ApiPersonalesService {
+
+    /**
+     * Envía los datos personales sin bloquear. Falla con {@link IllegalStateException} si no
+     * hay sesión y con {@link ApiException} si la API responde un error.
+     */
+    public static CompletableFuture<Integer> enviarDatosPersonalesAsync(Datos_per persona) {
+        String token = UserSession.getInstance().getToken();
+        if (token == null) {
+            return ApiClient.enEdt(CompletableFuture.failedFuture(new IllegalStateException("No hay sesión activa")));
+        }
+        String jsonPersona = new Gson().toJson(persona);
+        // Se invalida al enviar (descarta los GET que estén en curso) y al terminar, aunque
+        // falle: un timeout puede haber guardado igual
+        CacheRespuestas.invalidar();
+        return ApiClient.enEdt(ApiClient.enviarDatosAsync(ApiConfig.PERSONAS_URL + "info_personal", jsonPersona, token)
+                .whenComplete((status, error) -> CacheRespuestas.invalidar()));
+    }
+
+    /**
+     * JSON de {@code obtener_info_personal} (el historial del usuario).
+     */
+    public static CompletableFuture<String> obtenerDatosPersonalesAsync() {
+        String token = UserSession.getInstance().getToken();
+        if (token == null) {
+            return ApiClient.enEdt(CompletableFuture.failedFuture(new IllegalStateException("No hay sesión activa")));
+        }
+        return ApiClient.enEdt(ApiClient.obtenerDatosAsync(ApiConfig.PERSONAS_URL + "obtener_info_personal", token));
+    }
+}
@@ -0,0 +1,42 @@
+package app.services;
+
+import app.datos.Usuario;
+import app.session.UserSession;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Login y registro. Los futuros se completan en el EDT.
+ */
+public class ApiSesionService {
+
+    /**
+     * Inicia sesión sin bloquear; si la API acepta las credenciales guarda el token y el email
+     * en {@link UserSession} y completa con el token. Credenciales incorrectas u otro error de
+     * la API completan con {@link ApiException}.
+     */
+    public static CompletableFuture<String> loginAsync(Usuario user) {
+        String json = new Gson().toJson(user);
+        return ApiClient.enEdt(ApiClient.enviarAsync(ApiConfig.PERSONAS_URL + "login", json, null)
+                .thenApply(respuesta -> {
+                    if (respuesta.status != 200) {
+                        throw new ApiException(respuesta.status, respuesta.cuerpo, respuesta.retryAfter);
+                    }
+                    JsonObject jsonResponse = new Gson().fromJson(respuesta.cuerpo, JsonObject.class);
+                    String token = jsonResponse.get("token").getAsString();
+                    UserSession.getInstance().setToken(token);
+                    UserSession.getInstance().setEmail(user.getEmail());
+                    return token;
+                }));
+    }
+
+    /**
+     * Registra el usuario sin bloquear. Un email ya registrado u otro error de la API
+     * completan con {@link ApiException}.
+     */
+    public static CompletableFuture<Integer> registrarAsync(Usuario user) {
+        String json = new Gson().toJson(user);
+        return ApiClient.enEdt(ApiClient.enviarDatosAsync(ApiConfig.PERSONAS_URL + "registro", json, null));
+    }
+}
@@ -0,0 +1,87 @@
+package app.services;
+
+import app.session.UserSession;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Últimos cuerpos de los GET, por usuario (email en sesión) y URL. Las pantallas los usan
+ * para pintar al instante lo que ya se vio y refrescan en segundo plano cuando la entrada
+ * tiene más de {@link ApiConfig#CACHE_TTL_MS}. Cada escritura del usuario lo invalida
+ * ({@link #invalidar()}), así que después de guardar la pantalla vuelve a pedir los datos; un
+ * cambio de token o el cierre de sesión lo vacían entero ({@link #limpiar()}).
+ */
+public class CacheRespuestas {
+
+    private static final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+    // Aumenta con cada invalidación: una respuesta pedida antes no se guarda
+    private static final AtomicLong generacion = new AtomicLong();
+
+    /**
+     * Cuerpo guardado y si todavía está dentro del TTL.
+     */
+    public static final class Entrada {
+        public final String cuerpo;
+        private final long guardadaEn;
+
+        Entrada(String cuerpo, long guardadaEn) {
+            this.cuerpo = cuerpo;
+            this.guardadaEn = guardadaEn;
+        }
+
+        public boolean vigente() {
+            return System.currentTimeMillis() - guardadaEn < ApiConfig.CACHE_TTL_MS;
+        }
+    }
+
+    /**
+     * La entrada del usuario en sesión para la URL, vigente o no; null si no hay.
+     */
+    public static Entrada obtener(String endpoint) {
+        return entradas.get(clave(usuario(), endpoint));
+    }
+
+    /**
+     * GET condicional con {@link ApiClient#obtenerAsync} que guarda las respuestas 2xx
+     * para el usuario que estaba en sesión al hacer el pedido.
+     */
+    public static CompletableFuture<ApiClient.Respuesta> obtenerAsync(String endpoint, String token) {
+        String clave = clave(usuario(), endpoint);
+        long pedidoEn = generacion.get();
+        return ApiClient.obtenerAsync(endpoint, token).thenApply(respuesta -> {
+            if (respuesta.isOk() && generacion.get() == pedidoEn) {
+                entradas.put(clave, new Entrada(respuesta.cuerpo, System.currentTimeMillis()));
+            }
+            return respuesta;
+        });
+    }
+
+    /**
+     * Descarta todo lo guardado del usuario en sesión. Se llama después de cada escritura.
+     */
+    public static void invalidar() {
+        generacion.incrementAndGet();
+        String prefijo = clave(usuario(), "");
+        entradas.keySet().removeIf(clave -> clave.startsWith(prefijo));
+    }
+
+    /**
+     * Descarta lo guardado de todos los usuarios. {@link UserSession} lo llama cuando cambia
+     * el token o se cierra la sesión, igual que {@link ApiClient#olvidarRespuestas()}.
+     */
+    public static void limpiar() {
+        generacion.incrementAndGet();
+        entradas.clear();
+    }
+
+    private static String usuario() {
+        String email = UserSession.getInstance().getEmail();
+        return email != null ? email : "";
+    }
+
+    private static String clave(String usuario, String endpoint) {
+        return usuario + "\n" + endpoint;
+    }
+}
@@ -3,9 +3,6 @@ package app.services;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
 
 public class GeminiService {
     
@@ -32,44 +29,13 @@ public class GeminiService {
             
             String jsonBody = gson.toJson(requestBody);
             
-            // Crear conexión HTTP
-            URL url = new URL(API_URL);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
-            
-            // Enviar request
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = jsonBody.getBytes("utf-8");
-                os.write(input, 0, input.length);
-            }
-            
-            // Leer respuesta
-            int responseCode = conn.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                BufferedReader br = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), "utf-8"));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = br.readLine()) != null) {
-                    response.append(line.trim());
-                }
-                br.close();
-                
+            // Enviar request por el cliente compartido (conexión reutilizada, HTTP/2)
+            ApiClient.Respuesta respuesta = ApiClient.enviar(API_URL, jsonBody, null).get();
+            if (respuesta.status == 200) {
                 // Parsear respuesta con Gson
-                return extraerTextoRespuesta(response.toString());
+                return extraerTextoRespuesta(respuesta.cuerpo);
             } else {
-                // Leer error
-                BufferedReader br = new BufferedReader(
-                    new InputStreamReader(conn.getErrorStream(), "utf-8"));
-                StringBuilder errorResponse = new StringBuilder();
-                String line;
-                while ((line = br.readLine()) != null) {
-                    errorResponse.append(line.trim());
-                }
-                br.close();
-                return "Error HTTP " + responseCode + ": " + errorResponse.toString();
+                return "Error HTTP " + respuesta.status + ": " + respuesta.cuerpo;
             }
             
         } catch (Exception e) {
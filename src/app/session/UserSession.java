@@ -1,5 +1,9 @@
 package app.session;
 
+import app.services.ApiClient;
+import app.services.CacheRespuestas;
+import java.util.Objects;
+
 /*
  * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
  * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
@@ -27,6 +31,11 @@ public class UserSession {
     }
 
     public void setToken(String token) {
+        if (!Objects.equals(this.token, token)) {
+            // Las respuestas guardadas con el token anterior ya no sirven
+            ApiClient.olvidarRespuestas();
+            CacheRespuestas.limpiar();
+        }
         this.token = token;
     }
 
@@ -51,6 +60,8 @@ public class UserSession {
     }
 
     public void clearSession() {
+        ApiClient.olvidarRespuestas();
+        CacheRespuestas.limpiar();
         token = null;
         email = null;
         userId = null;
@@ -1,17 +1,11 @@
 package app.ui;
 
 
-import app.session.UserSession;
 import app.datos.Usuario;
-import app.services.ApiConfig;
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
+import app.services.ApiClient;
+import app.services.ApiException;
+import app.services.ApiSesionService;
 import java.awt.HeadlessException;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.*;
@@ -186,49 +180,36 @@ public class Login extends javax.swing.JPanel {
         
         Usuario user = new Usuario(correo, contrasena);
 
-        Gson gson = new Gson();
-        String json = gson.toJson(user);
+        // El login guarda el token y el email en la sesión; el callback corre en el EDT
+        ApiSesionService.loginAsync(user).whenComplete((token, error) -> {
+            if (error == null) {
+                JOptionPane.showMessageDialog(this, "Login exitoso");
 
-        URL url = new URL(ApiConfig.PERSONAS_URL + "login"); // cambia a tu endpoint real
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/json; utf-8");
-        conn.setDoOutput(true);
-
-        try (OutputStream os = conn.getOutputStream()) {
-            byte[] input = json.getBytes("utf-8");
-            os.write(input, 0, input.length);
-        }
-
-        int responseCode = conn.getResponseCode();     
-         if (responseCode == HttpURLConnection.HTTP_OK) {
-            // Leer la respuesta
-            BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream(), "utf-8"));
-            StringBuilder response = new StringBuilder();
-            String responseLine = null;
-            while ((responseLine = br.readLine()) != null) {
-                response.append(responseLine.trim());
+                // Aquí podrías abrir el panel principal de la app
+                JPanel DashBoard = new DashBoard();
+                Inicio parent = (Inicio) javax.swing.SwingUtilities.getWindowAncestor(this);
+                parent.ShowPanel(DashBoard);
+                return;
             }
-
-            // Parsear la respuesta JSON
-            JsonObject jsonResponse = new Gson().fromJson(response.toString(), JsonObject.class);
-            String token = jsonResponse.get("token").getAsString();
-
-            // Guardar en la sesión
-            UserSession.getInstance().setToken(token);
-            UserSession.getInstance().setEmail(correo);
-
-            JOptionPane.showMessageDialog(this, "Login exitoso");
-
-            // Aquí podrías abrir el panel principal de la app
-            JPanel DashBoard = new DashBoard();
-            Inicio parent = (Inicio) javax.swing.SwingUtilities.getWindowAncestor(this);
-            parent.ShowPanel(DashBoard);
-        }       
-        
-        else {
-            JOptionPane.showMessageDialog(this, "Credenciales incorrectas");
-        }
+            Throwable causa = ApiClient.causa(error);
+            if (causa instanceof ApiException) {
+                ApiException api = (ApiException) causa;
+                if (api.getStatus() == 401 || api.getStatus() == 403) {
+                    JOptionPane.showMessageDialog(this, "Credenciales incorrectas");
+                } else if (api.getStatus() == 503) {
+                    // La API está saturada calculando hashes: no es culpa de la contraseña
+                    String espera = api.getRetryAfter() >= 0 ? api.getRetryAfter() + " s" : "unos segundos";
+                    JOptionPane.showMessageDialog(this, "Servidor ocupado, reintenta en " + espera,
+                            "Servidor ocupado", JOptionPane.WARNING_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Error del servidor al iniciar sesión (HTTP " + api.getStatus() + ")",
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            } else {
+                JOptionPane.showMessageDialog(this, "Ocurrió un error: " + causa.getMessage());
+                causa.printStackTrace();
+            }
+        });
 
     } catch (HeadlessException e) {
         JOptionPane.showMessageDialog(this, "Error en la interfaz gráfica: " + e.getMessage());
@@ -2,11 +2,9 @@ package app.ui;
 
 
 import app.datos.Usuario;
-import app.services.ApiConfig;
-import com.google.gson.Gson;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import app.services.ApiClient;
+import app.services.ApiException;
+import app.services.ApiSesionService;
 import javax.swing.JOptionPane;
 
 /*
@@ -142,43 +140,30 @@ public class Registro extends javax.swing.JPanel {
     }// </editor-fold>//GEN-END:initComponents
 
     private void bt_reActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_bt_reActionPerformed
-        try {
-            String email = correo_rg.getText();
-            String password = new String(contraseña_rg.getPassword());
+        String email = correo_rg.getText();
+        String password = new String(contraseña_rg.getPassword());
 
-            Usuario user = new Usuario(email, password);
+        Usuario user = new Usuario(email, password);
 
-            Gson gson = new Gson();
-            String json = gson.toJson(user);
-
-            // ---- conexión API ----
-            URL url = new URL(ApiConfig.PERSONAS_URL + "registro");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json; utf-8");
-            conn.setDoOutput(true);
-
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = json.getBytes("utf-8");
-                os.write(input, 0, input.length);
-            }
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK || responseCode == HttpURLConnection.HTTP_CREATED) {
+        // ---- conexión API (sin bloquear el EDT) ----
+        ApiSesionService.registrarAsync(user).whenComplete((responseCode, error) -> {
+            if (error == null) {
                 JOptionPane.showMessageDialog(this, "Usuario registrado con éxito");
 
                 // Ir automáticamente al Login
                 Login p2 = new Login();
                 Inicio parent = (Inicio) javax.swing.SwingUtilities.getWindowAncestor(this);
                 parent.ShowPanel(p2);
+                return;
+            }
+            Throwable causa = ApiClient.causa(error);
+            if (causa instanceof ApiException) {
+                JOptionPane.showMessageDialog(this, "Error al registrar: " + ((ApiException) causa).getStatus());
             } else {
-                JOptionPane.showMessageDialog(this, "Error al registrar: " + responseCode);
+                JOptionPane.showMessageDialog(this, "Error: " + causa.getMessage());
+                causa.printStackTrace();
             }
-
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage());
-            e.printStackTrace();
-        }
+        });
     }//GEN-LAST:event_bt_reActionPerformed
 
     private void correo_rgActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_correo_rgActionPerformed